@@ -0,0 +1,178 @@
+package io.fabianbuthere.individualism.compiler;
+
+import com.google.gson.stream.JsonReader;
+import io.fabianbuthere.individualism.client.model.CompiledCache;
+import io.fabianbuthere.individualism.client.model.CompiledFormat;
+import io.fabianbuthere.individualism.client.model.CustomModel;
+import io.fabianbuthere.individualism.client.model.ModelJsonReader;
+import io.fabianbuthere.individualism.client.model.ModelMetadata;
+import net.minecraft.resources.ResourceLocation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Validates the cosmetics shipped in the mod's resources and compiles them into the precompiled entries
+ * read by {@link CompiledCache}, so the shipped files are never parsed when the game loads. Run by the
+ * compileCosmetics Gradle task before the resources are packed, which fails the build on any error.
+ * <p>
+ * Runs outside the game, so items can only be checked for a valid id, not for being registered.
+ * <p>
+ * Arguments: the output directory, then every resource directory to read.
+ */
+public final class CosmeticCompiler {
+    private static final String MODEL_DIRECTORY = "models/custom";
+    private static final String METADATA_DIRECTORY = "metadata";
+    private static final ResourceLocation AIR = ResourceLocation.fromNamespaceAndPath("minecraft", "air");
+
+    private final List<Path> resourceDirectories;
+    private final Set<String> namespaces = new HashSet<>();
+    private final Map<ResourceLocation, CustomModel> models = new TreeMap<>();
+    private final Map<ResourceLocation, ModelMetadata> metadata = new TreeMap<>();
+    private final Map<Long, byte[]> modelEntries = new LinkedHashMap<>();
+    private final Map<Long, byte[]> metadataEntries = new LinkedHashMap<>();
+    private final List<String> errors = new ArrayList<>();
+
+    private CosmeticCompiler(List<Path> resourceDirectories) {
+        this.resourceDirectories = resourceDirectories;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CosmeticCompiler <output directory> <resource directory>...");
+            System.exit(2);
+        }
+
+        List<Path> resourceDirectories = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            resourceDirectories.add(Path.of(args[i]));
+        }
+
+        CosmeticCompiler compiler = new CosmeticCompiler(resourceDirectories);
+        compiler.compile();
+        if (!compiler.errors.isEmpty()) {
+            compiler.errors.forEach(error -> System.err.println("error: " + error));
+            System.err.println(compiler.errors.size() + " invalid cosmetics, see above");
+            System.exit(1);
+        }
+
+        Path output = Path.of(args[0]).resolve(CompiledCache.PRECOMPILED_DIRECTORY);
+        CompiledCache.write(output.resolve(MODEL_DIRECTORY.replace('/', '_') + ".bin"), compiler.modelEntries);
+        CompiledCache.write(output.resolve(METADATA_DIRECTORY.replace('/', '_') + ".bin"), compiler.metadataEntries);
+        System.out.println("Precompiled " + compiler.models.size() + " models and " + compiler.metadata.size() + " metadata files");
+    }
+
+    private void compile() throws IOException {
+        for (Path resources : resourceDirectories) {
+            Path assets = resources.resolve("assets");
+            if (!Files.isDirectory(assets)) {
+                continue;
+            }
+            try (Stream<Path> children = Files.list(assets)) {
+                for (Path namespace : children.filter(Files::isDirectory).toList()) {
+                    namespaces.add(namespace.getFileName().toString());
+                    compileDirectory(namespace, MODEL_DIRECTORY, this::compileModel);
+                    compileDirectory(namespace, METADATA_DIRECTORY, this::compileMetadata);
+                }
+            }
+        }
+
+        for (ResourceLocation modelId : models.keySet()) {
+            if (!metadata.containsKey(modelId)) {
+                errors.add("Missing metadata for model " + modelId);
+            }
+        }
+        for (ResourceLocation modelId : metadata.keySet()) {
+            if (!models.containsKey(modelId)) {
+                errors.add("Metadata without a model: " + modelId);
+            }
+        }
+    }
+
+    private void compileDirectory(Path namespace, String directory, FileCompiler compiler) throws IOException {
+        Path root = namespace.resolve(directory);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".json")).sorted().toList()) {
+                String path = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                ResourceLocation id = ResourceLocation.tryBuild(namespace.getFileName().toString(),
+                        path.substring(0, path.length() - ".json".length()));
+                if (id == null) {
+                    errors.add("Invalid resource location for " + file);
+                    continue;
+                }
+
+                byte[] bytes = Files.readAllBytes(file);
+                try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+                    compiler.compile(id, reader, CompiledCache.hash(bytes));
+                } catch (IOException | RuntimeException e) {
+                    errors.add("Failed to read " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void compileModel(ResourceLocation modelId, JsonReader reader, long hash) throws IOException {
+        CustomModel model = ModelJsonReader.readModel(modelId, reader);
+        if (model.getQuadCount() == 0) {
+            errors.add("Model " + modelId + " has no faces");
+        }
+        for (int texture = 0; texture < model.getTextureCount(); texture++) {
+            ResourceLocation location = model.getTextureLocation(texture);
+            // Textures of other namespaces come from the game or other mods
+            if (namespaces.contains(location.getNamespace()) && !resourceExists(location)) {
+                errors.add("Missing texture " + location + " of model " + modelId);
+            }
+        }
+
+        model.optimizeAndBake();
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        CompiledFormat.writeModel(model, new DataOutputStream(payload));
+        models.put(modelId, model);
+        modelEntries.put(hash, payload.toByteArray());
+    }
+
+    private void compileMetadata(ResourceLocation modelId, JsonReader reader, long hash) throws IOException {
+        ModelMetadata value = ModelJsonReader.readMetadata(modelId, reader);
+        ResourceLocation item = ResourceLocation.tryParse(value.onItem());
+        if (item == null || item.equals(AIR)) {
+            errors.add("Metadata for " + modelId + " has no valid item: '" + value.onItem() + "'");
+        }
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        CompiledFormat.writeMetadata(value, new DataOutputStream(payload));
+        metadata.put(modelId, value);
+        metadataEntries.put(hash, payload.toByteArray());
+    }
+
+    private boolean resourceExists(ResourceLocation location) {
+        for (Path resources : resourceDirectories) {
+            if (Files.isRegularFile(resources.resolve("assets").resolve(location.getNamespace()).resolve(location.getPath()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    private interface FileCompiler {
+        void compile(ResourceLocation id, JsonReader reader, long hash) throws IOException;
+    }
+}
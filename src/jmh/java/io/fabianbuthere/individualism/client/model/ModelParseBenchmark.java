@@ -0,0 +1,54 @@
+package io.fabianbuthere.individualism.client.model;
+
+import io.fabianbuthere.individualism.Individualism;
+import net.minecraft.resources.ResourceLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to turn one model file into renderable geometry, split into reading and optimizing plus baking
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelParseBenchmark {
+    private static final ResourceLocation MODEL_ID = ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "benchmark");
+
+    // Small hats up to large full-body outfits
+    @Param({"8", "400"})
+    public int elements;
+
+    private String json;
+
+    @Setup
+    public void setup() {
+        json = SyntheticModels.modelJson(elements, 42);
+    }
+
+    @Benchmark
+    public CustomModel read() {
+        return SyntheticModels.parse(MODEL_ID, json);
+    }
+
+    @Benchmark
+    public CustomModel readAndBake() {
+        CustomModel model = SyntheticModels.parse(MODEL_ID, json);
+        ModelOptimizer.optimize(model);
+        model.bake();
+        return model;
+    }
+}
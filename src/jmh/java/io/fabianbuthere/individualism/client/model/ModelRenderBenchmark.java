@@ -0,0 +1,78 @@
+package io.fabianbuthere.individualism.client.model;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.renderer.CountingVertexConsumer;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.texture.OverlayTexture;
+import net.minecraft.resources.ResourceLocation;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immediate mode rendering of one model into a consumer that only counts. The vertices counter is
+ * reported as vertices per second next to the call rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelRenderBenchmark {
+    private static final ResourceLocation MODEL_ID = ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "benchmark");
+
+    @Param({"8", "400"})
+    public int elements;
+
+    @Param({"0", "2"})
+    public int lod;
+
+    private CustomModel model;
+    private PoseStack poseStack;
+    private CountingVertexConsumer consumer;
+    private MultiBufferSource bufferSource;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long vertices;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            vertices = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        model = SyntheticModels.baked(MODEL_ID, elements, 42);
+        poseStack = new PoseStack();
+        poseStack.translate(0.5, 1.0, 0.5);
+        consumer = new CountingVertexConsumer();
+        bufferSource = renderType -> consumer;
+    }
+
+    @Benchmark
+    public double render(Counters counters) {
+        long before = consumer.getVertices();
+        model.render(poseStack, bufferSource, Math.min(lod, model.getLodCount() - 1),
+                LightTexture.FULL_BRIGHT, OverlayTexture.NO_OVERLAY);
+        counters.vertices += consumer.getVertices() - before;
+        return consumer.getChecksum();
+    }
+}
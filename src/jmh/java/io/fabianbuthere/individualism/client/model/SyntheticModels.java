@@ -0,0 +1,39 @@
+package io.fabianbuthere.individualism.client.model;
+
+import com.google.gson.stream.JsonReader;
+import io.fabianbuthere.individualism.gametest.SyntheticCosmeticPack;
+import net.minecraft.resources.ResourceLocation;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+/**
+ * Synthetic models for the benchmarks, see {@link SyntheticCosmeticPack}
+ */
+public final class SyntheticModels {
+    private SyntheticModels() {
+    }
+
+    public static String modelJson(int elements, long seed) {
+        return SyntheticCosmeticPack.modelJson(elements, seed);
+    }
+
+    public static CustomModel parse(ResourceLocation modelId, String json) {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return ModelJsonReader.readModel(modelId, reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse, optimize and bake a model the way a reload does
+     */
+    public static CustomModel baked(ResourceLocation modelId, int elements, long seed) {
+        CustomModel model = parse(modelId, modelJson(elements, seed));
+        ModelOptimizer.optimize(model);
+        model.bake();
+        return model;
+    }
+}
@@ -0,0 +1,66 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Discards everything except the number of finished vertices and a checksum of their positions,
+ * so that the transformation in {@link VertexConsumer#vertex(org.joml.Matrix4f, float, float, float)}
+ * cannot be optimized away. Used to measure the CPU side of rendering without a GPU.
+ */
+public class CountingVertexConsumer implements VertexConsumer {
+    private long vertices;
+    private double checksum;
+
+    @Override
+    public @NotNull VertexConsumer vertex(double x, double y, double z) {
+        checksum += x + y + z;
+        return this;
+    }
+
+    @Override
+    public @NotNull VertexConsumer color(int red, int green, int blue, int alpha) {
+        return this;
+    }
+
+    @Override
+    public @NotNull VertexConsumer uv(float u, float v) {
+        return this;
+    }
+
+    @Override
+    public @NotNull VertexConsumer overlayCoords(int u, int v) {
+        return this;
+    }
+
+    @Override
+    public @NotNull VertexConsumer uv2(int u, int v) {
+        return this;
+    }
+
+    @Override
+    public @NotNull VertexConsumer normal(float x, float y, float z) {
+        return this;
+    }
+
+    @Override
+    public void endVertex() {
+        vertices++;
+    }
+
+    @Override
+    public void defaultColor(int red, int green, int blue, int alpha) {
+    }
+
+    @Override
+    public void unsetDefaultColor() {
+    }
+
+    public long getVertices() {
+        return vertices;
+    }
+
+    public double getChecksum() {
+        return checksum;
+    }
+}
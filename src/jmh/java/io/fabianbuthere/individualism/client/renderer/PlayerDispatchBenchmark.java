@@ -0,0 +1,93 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex.PreparedCosmetic;
+import io.fabianbuthere.individualism.client.model.CustomModel;
+import io.fabianbuthere.individualism.client.model.ModelMetadata;
+import io.fabianbuthere.individualism.client.model.SyntheticModels;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.ArmorItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-player cost of {@link PlayerModelRenderer#renderCosmetics} with many players wearing cosmetics
+ * drawn from a large set of models. Each call draws the next player, so the score is ns per player
+ * and includes the cache misses of touching many different models.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerDispatchBenchmark {
+    private static final int COSMETICS_PER_PLAYER = 4;
+    private static final UUID PLAYER_ID = new UUID(0, 0);
+
+    @Param({"1", "50", "500"})
+    public int players;
+
+    @Param({"10", "500", "5000"})
+    public int models;
+
+    @Param({"0", "2"})
+    public int lod;
+
+    private PreparedCosmetic[][] cosmeticsByPlayer;
+    private PoseStack poseStack;
+    private CountingVertexConsumer consumer;
+    private MultiBufferSource bufferSource;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        PreparedCosmetic[] pool = new PreparedCosmetic[models];
+        for (int i = 0; i < models; i++) {
+            ResourceLocation modelId = ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "benchmark_" + i);
+            CustomModel model = SyntheticModels.baked(modelId, 4 + random.nextInt(40), i);
+            ModelMetadata metadata = new ModelMetadata("Benchmark " + i, 0f, 0f, 0f, modelId, "",
+                    "minecraft:air", ArmorItem.Type.HELMET, null);
+            pool[i] = PreparedCosmetic.of(model, metadata);
+        }
+
+        cosmeticsByPlayer = new PreparedCosmetic[players][COSMETICS_PER_PLAYER];
+        for (PreparedCosmetic[] cosmetics : cosmeticsByPlayer) {
+            for (int i = 0; i < cosmetics.length; i++) {
+                cosmetics[i] = pool[random.nextInt(pool.length)];
+            }
+        }
+
+        poseStack = new PoseStack();
+        consumer = new CountingVertexConsumer();
+        bufferSource = renderType -> consumer;
+    }
+
+    @Benchmark
+    public double renderPlayer() {
+        PreparedCosmetic[] cosmetics = cosmeticsByPlayer[next];
+        next = next + 1 == cosmeticsByPlayer.length ? 0 : next + 1;
+
+        // No frustum, every cosmetic is drawn
+        PlayerModelRenderer.renderCosmetics(cosmetics, poseStack, bufferSource, lod, LightTexture.FULL_BRIGHT,
+                null, 0, 0, 0, PLAYER_ID, 0);
+        return consumer.getChecksum();
+    }
+}
@@ -1,11 +1,14 @@
 package io.fabianbuthere.individualism;
 
 import io.fabianbuthere.individualism.block.ModBlocks;
+import io.fabianbuthere.individualism.config.ClientConfig;
 import io.fabianbuthere.individualism.item.ModCreativeModeTabs;
 import io.fabianbuthere.individualism.item.ModItems;
+import io.fabianbuthere.individualism.network.ModNetwork;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.config.ModConfig;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import org.apache.logging.log4j.LogManager;
@@ -31,6 +34,8 @@ public class Individualism {
 
         ModCreativeModeTabs.register(modEventBus);
 
+        context.registerConfig(ModConfig.Type.CLIENT, ClientConfig.SPEC);
+
         modEventBus.addListener(this::commonSetup);
 
         MinecraftForge.EVENT_BUS.register(this);
@@ -38,5 +43,6 @@ public class Individualism {
 
     private void commonSetup(final FMLCommonSetupEvent event) {
         LOGGER.info("Individualism common setup");
+        event.enqueueWork(ModNetwork::register);
     }
 }
@@ -0,0 +1,308 @@
+package io.fabianbuthere.individualism.client.model;
+
+import com.google.common.hash.Hashing;
+import io.fabianbuthere.individualism.Individualism;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.forgespi.language.IModFileInfo;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * On-disk cache of compiled entries in the game directory, keyed by a hash of the source file's bytes.
+ * The file is memory mapped once per reload and entries are sliced out of it without copying.
+ * <p>
+ * Entries of the files shipped in the mod jar are compiled at build time by the compileCosmetics task into
+ * the same layout under {@link #PRECOMPILED_DIRECTORY}. They are looked up before the cache file and never
+ * copied into it.
+ * <p>
+ * Layout: magic, {@link CompiledFormat#VERSION}, entry count, then per entry the hash, payload length and payload.
+ */
+public final class CompiledCache {
+    public static final String PRECOMPILED_DIRECTORY = Individualism.MOD_ID + "/precompiled";
+
+    private static final int MAGIC = 0x494E4443; // "INDC"
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+    private static final int ENTRY_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final String name;
+    private final Path file;
+    private final Path pendingFile;
+    private Entries precompiled = null; // Read on the first reload, the jar does not change while running
+
+    public CompiledCache(String name) {
+        this.name = name;
+        Path directory = FMLPaths.GAMEDIR.get().resolve(Individualism.MOD_ID).resolve("cache");
+        this.file = directory.resolve(name + ".bin");
+        this.pendingFile = directory.resolve(name + ".bin.tmp");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Key of a source file's bytes
+     */
+    public static long hash(byte[] bytes) {
+        return Hashing.murmur3_128().hashBytes(bytes).asLong();
+    }
+
+    /**
+     * Map the cache file for one reload. A disabled session never hits and never writes.
+     *
+     * @param usePrecompiled whether entries compiled into the mod jar are used, independent of the cache file
+     */
+    public synchronized Session begin(boolean enabled, boolean usePrecompiled) {
+        Entries shipped = usePrecompiled ? getPrecompiled() : Entries.EMPTY;
+        if (!enabled) {
+            return new Session(Entries.EMPTY, shipped, false);
+        }
+
+        promotePendingFile();
+        if (!Files.isRegularFile(file)) {
+            return new Session(Entries.EMPTY, shipped, true);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Long2LongOpenHashMap index = readIndex(buffer);
+            if (index == null) {
+                Individualism.LOGGER.info("Compiled cache {} was written by another version, rebuilding it", name);
+                return new Session(Entries.EMPTY, shipped, true);
+            }
+            return new Session(new Entries(buffer, index), shipped, true);
+        } catch (IOException | RuntimeException e) {
+            Individualism.LOGGER.warn("Failed to read compiled cache {}, rebuilding it", file, e);
+            return new Session(Entries.EMPTY, shipped, true);
+        }
+    }
+
+    private Entries getPrecompiled() {
+        if (precompiled == null) {
+            precompiled = readPrecompiled();
+        }
+        return precompiled;
+    }
+
+    private Entries readPrecompiled() {
+        IModFileInfo modFile = ModList.get().getModFileById(Individualism.MOD_ID);
+        Path path = modFile == null ? null : modFile.getFile().findResource(PRECOMPILED_DIRECTORY, name + ".bin");
+        if (path == null || !Files.isRegularFile(path)) {
+            return Entries.EMPTY;
+        }
+
+        try {
+            // Usually inside the jar, where it cannot be mapped
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            Long2LongOpenHashMap index = readIndex(buffer);
+            if (index == null) {
+                Individualism.LOGGER.warn("Precompiled {} was built by another version, ignoring it", name);
+                return Entries.EMPTY;
+            }
+            Individualism.LOGGER.info("Read {} precompiled entries for {}", index.size(), name);
+            return new Entries(buffer.asReadOnlyBuffer(), index);
+        } catch (IOException | RuntimeException e) {
+            Individualism.LOGGER.warn("Failed to read precompiled {}", path, e);
+            return Entries.EMPTY;
+        }
+    }
+
+    /**
+     * @return hash to (offset << 32 | length) of every payload, or null if the file is from another version
+     */
+    private static Long2LongOpenHashMap readIndex(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != CompiledFormat.VERSION) {
+            return null;
+        }
+
+        int count = buffer.getInt(8);
+        Long2LongOpenHashMap index = new Long2LongOpenHashMap(count);
+        int position = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            long hash = buffer.getLong(position);
+            int length = buffer.getInt(position + Long.BYTES);
+            int offset = position + ENTRY_HEADER_SIZE;
+            if (length < 0 || offset + length > buffer.limit()) {
+                throw new IllegalStateException("Truncated entry " + i);
+            }
+            index.put(hash, (long) offset << 32 | length);
+            position = offset + length;
+        }
+        return index;
+    }
+
+    /**
+     * A mapped file cannot be replaced on every platform, so a rewrite that could not be moved into
+     * place is left next to it and promoted before the next mapping
+     */
+    private void promotePendingFile() {
+        if (Files.isRegularFile(pendingFile)) {
+            try {
+                Files.move(pendingFile, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Individualism.LOGGER.warn("Failed to replace compiled cache {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Write entries in the layout of the cache file. Also used at build time to write the precompiled entries.
+     */
+    public static void write(Path target, Map<Long, byte[]> entries) throws IOException {
+        Files.createDirectories(target.getParent());
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(CompiledFormat.VERSION);
+            out.writeInt(entries.size());
+
+            for (Map.Entry<Long, byte[]> entry : entries.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Payloads of a file in the cache layout, see {@link #readIndex}
+     */
+    private record Entries(ByteBuffer buffer, Long2LongOpenHashMap index) {
+        private static final Entries EMPTY = new Entries(ByteBuffer.allocate(0), new Long2LongOpenHashMap());
+
+        private boolean contains(long hash) {
+            return index.containsKey(hash);
+        }
+
+        private ByteBuffer slice(long hash) {
+            long entry = index.get(hash);
+            return buffer.slice((int) (entry >>> 32), (int) entry);
+        }
+
+        private byte[] copy(long hash) {
+            long entry = index.get(hash);
+            byte[] payload = new byte[(int) entry];
+            buffer.get((int) (entry >>> 32), payload);
+            return payload;
+        }
+    }
+
+    public final class Session {
+        private final Entries cached;
+        private final Entries precompiled;
+        private final boolean enabled;
+        private final Set<Long> used = ConcurrentHashMap.newKeySet();
+        private final Map<Long, byte[]> added = new ConcurrentHashMap<>();
+        private final AtomicInteger precompiledHits = new AtomicInteger();
+        private final AtomicInteger hits = new AtomicInteger();
+        private final AtomicInteger misses = new AtomicInteger();
+
+        private Session(Entries cached, Entries precompiled, boolean enabled) {
+            this.cached = cached;
+            this.precompiled = precompiled;
+            this.enabled = enabled;
+        }
+
+        /**
+         * Get the compiled payload for a source file, from the precompiled entries before the cache file.
+         * Safe to call from several threads at once.
+         *
+         * @return a read-only view of the payload, or null on a miss
+         */
+        public ByteBuffer lookup(long hash) {
+            if (precompiled.contains(hash)) {
+                precompiledHits.incrementAndGet();
+                return precompiled.slice(hash);
+            }
+            if (!enabled) {
+                return null;
+            }
+            if (!cached.contains(hash)) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            used.add(hash);
+            hits.incrementAndGet();
+            return cached.slice(hash);
+        }
+
+        /**
+         * Keep an entry whose source is still loaded from an earlier reload, without counting it as a hit
+         *
+         * @return false if neither the precompiled entries nor the cache have such an entry
+         */
+        public boolean retain(long hash) {
+            if (!enabled || precompiled.contains(hash)) {
+                return true;
+            }
+            if (!cached.contains(hash)) {
+                return false;
+            }
+            used.add(hash);
+            return true;
+        }
+
+        /**
+         * Remember a freshly compiled payload, replacing any entry with the same hash
+         */
+        public void store(long hash, byte[] payload) {
+            if (enabled) {
+                added.put(hash, payload);
+            }
+        }
+
+        /**
+         * Log the hit rate and rewrite the file if entries were added or became unused
+         */
+        public void finish() {
+            if (!enabled) {
+                return;
+            }
+            Individualism.LOGGER.info("Compiled cache {}: {} precompiled, {} hits, {} misses", name,
+                    precompiledHits.get(), hits.get(), misses.get());
+
+            if (added.isEmpty() && used.size() == cached.index().size()) {
+                return;
+            }
+
+            try {
+                write();
+            } catch (IOException e) {
+                Individualism.LOGGER.warn("Failed to write compiled cache {}", file, e);
+            }
+        }
+
+        private void write() throws IOException {
+            Map<Long, byte[]> entries = new HashMap<>(added);
+            for (long hash : used) {
+                if (!entries.containsKey(hash)) {
+                    entries.put(hash, cached.copy(hash));
+                }
+            }
+            CompiledCache.write(pendingFile, entries);
+
+            try {
+                Files.move(pendingFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Most likely still mapped, promoted on the next reload instead
+                Individualism.LOGGER.debug("Deferred replacing compiled cache {}", file, e);
+            }
+        }
+    }
+}
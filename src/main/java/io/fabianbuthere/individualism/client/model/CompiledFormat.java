@@ -0,0 +1,136 @@
+package io.fabianbuthere.individualism.client.model;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.ArmorItem;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary form of baked models and parsed metadata, used to skip JSON parsing for unchanged files.
+ * Model ids are not part of the data, entries are keyed by the content of their source file.
+ */
+public final class CompiledFormat {
+    /**
+     * Bump whenever parsing, optimizing, baking or the layout below changes, so stale entries are discarded
+     */
+    public static final int VERSION = 6;
+
+    private static final int SHARED_LEVEL = -1;
+    private static final int PICKED_TRANSPARENCY = -1;
+
+    private CompiledFormat() {
+    }
+
+    public static void writeModel(CustomModel model, DataOutput out) throws IOException {
+        out.writeInt(model.getTextureCount());
+        for (int i = 0; i < model.getTextureCount(); i++) {
+            writeString(out, model.getTextureLocation(i).toString());
+        }
+        writeFloats(out, model.getRenderOffset());
+
+        out.writeInt(model.getLodCount());
+        for (int i = 0; i < model.getLodCount(); i++) {
+            if (i > 0 && model.getVertices(i) == model.getVertices(i - 1)) {
+                out.writeInt(SHARED_LEVEL);
+            } else {
+                out.writeInt(model.getVertices(i).length);
+                writeFloats(out, model.getVertices(i));
+                for (int start : model.getTextureStarts(i)) {
+                    out.writeInt(start);
+                }
+            }
+        }
+
+        writeFloats(out, model.getBounds());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload is malformed, the model is then parsed from its file instead
+     */
+    public static CustomModel readModel(ResourceLocation modelId, ByteBuffer in) {
+        List<ResourceLocation> textureLocations = new ArrayList<>();
+        int textureCount = in.getInt();
+        for (int i = 0; i < textureCount; i++) {
+            String texture = readString(in);
+            ResourceLocation textureLocation = ResourceLocation.tryParse(texture);
+            if (textureLocation == null) {
+                throw new IllegalArgumentException("Invalid texture location '" + texture + "' in compiled model " + modelId);
+            }
+            textureLocations.add(textureLocation);
+        }
+        float[] renderOffset = readFloats(in, 3);
+
+        float[][] lodVertices = new float[in.getInt()][];
+        int[][] lodTextureStarts = new int[lodVertices.length][];
+        for (int i = 0; i < lodVertices.length; i++) {
+            int length = in.getInt();
+            if (length == SHARED_LEVEL) {
+                lodVertices[i] = lodVertices[i - 1];
+                lodTextureStarts[i] = lodTextureStarts[i - 1];
+            } else {
+                lodVertices[i] = readFloats(in, length);
+                lodTextureStarts[i] = new int[textureCount + 1];
+                for (int j = 0; j <= textureCount; j++) {
+                    lodTextureStarts[i][j] = in.getInt();
+                }
+            }
+        }
+
+        float[] bounds = readFloats(in, 6);
+        return CustomModel.fromBaked(modelId, textureLocations, renderOffset, lodVertices, lodTextureStarts, bounds);
+    }
+
+    public static void writeMetadata(ModelMetadata metadata, DataOutput out) throws IOException {
+        writeString(out, metadata.name());
+        out.writeFloat(metadata.offsetX());
+        out.writeFloat(metadata.offsetY());
+        out.writeFloat(metadata.offsetZ());
+        writeString(out, metadata.variant());
+        writeString(out, metadata.onItem());
+        out.writeInt(metadata.armorSlot().ordinal());
+        out.writeInt(metadata.transparency() == null ? PICKED_TRANSPARENCY : metadata.transparency().ordinal());
+    }
+
+    public static ModelMetadata readMetadata(ResourceLocation modelId, ByteBuffer in) {
+        String name = readString(in);
+        float offsetX = in.getFloat();
+        float offsetY = in.getFloat();
+        float offsetZ = in.getFloat();
+        String variant = readString(in);
+        String onItem = readString(in);
+        ArmorItem.Type armorSlot = ArmorItem.Type.values()[in.getInt()];
+        int transparency = in.getInt();
+        return new ModelMetadata(name, offsetX, offsetY, offsetZ, modelId, variant, onItem, armorSlot,
+                transparency == PICKED_TRANSPARENCY ? null : ModelTransparency.values()[transparency]);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFloats(DataOutput out, float[] values) throws IOException {
+        for (float value : values) {
+            out.writeFloat(value);
+        }
+    }
+
+    private static float[] readFloats(ByteBuffer in, int count) {
+        float[] values = new float[count];
+        in.asFloatBuffer().get(values);
+        in.position(in.position() + count * Float.BYTES);
+        return values;
+    }
+}
@@ -0,0 +1,295 @@
+package io.fabianbuthere.individualism.client.model;
+
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.item.custom.WearableItem;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraftforge.registries.ForgeRegistries;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable snapshot of everything loaded by the last resource reload: models, their metadata and the
+ * lookup from (equipment slot, equipped item, variant) to the cosmetics that should be drawn for it.
+ * Built off-thread and published with a single volatile write, so readers on the render thread always
+ * see one consistent reload without locking or copying, and rendering never touches registries or strings.
+ * <p>
+ * Variant names are interned to dense ids, assigned in name order starting at 1. Id 0 stands for no
+ * variant, its cosmetics are drawn for every stack of their item.
+ */
+public final class CosmeticIndex {
+    public static final CosmeticIndex EMPTY = new CosmeticIndex(Map.of(), Map.of(), emptySlots(), new String[]{""},
+            new Object2IntOpenHashMap<>(), List.of(), 0);
+
+    private static final PreparedCosmetic[] NONE = new PreparedCosmetic[0];
+    private static volatile CosmeticIndex current = EMPTY;
+
+    private final Map<ResourceLocation, CustomModel> models;
+    private final Map<ResourceLocation, ModelMetadata> metadata;
+    private final Map<Item, PreparedCosmetic[][]>[] bySlot; // Indexed by EquipmentSlot ordinal, then variant id
+    private final String[] variantNames;
+    private final Object2IntMap<String> variantIds;
+    private final List<ItemStack> variantStacks;
+    private final int size;
+
+    private CosmeticIndex(Map<ResourceLocation, CustomModel> models, Map<ResourceLocation, ModelMetadata> metadata,
+                          Map<Item, PreparedCosmetic[][]>[] bySlot, String[] variantNames,
+                          Object2IntMap<String> variantIds, List<ItemStack> variantStacks, int size) {
+        this.models = models;
+        this.metadata = metadata;
+        this.bySlot = bySlot;
+        this.variantNames = variantNames;
+        this.variantIds = variantIds;
+        this.variantStacks = variantStacks;
+        this.size = size;
+    }
+
+    /**
+     * Get the snapshot published by the last resource reload
+     */
+    public static CosmeticIndex get() {
+        return current;
+    }
+
+    static void publish(CosmeticIndex index) {
+        current = index;
+        Individualism.LOGGER.info("Published cosmetic index with {} entries", index.size);
+    }
+
+    public static CosmeticIndex build(Map<ResourceLocation, CustomModel> models, Map<ResourceLocation, ModelMetadata> metadataMap) {
+        return build(models, Set.of(), metadataMap);
+    }
+
+    /**
+     * Join models with their metadata. Safe to call from a background thread.
+     *
+     * @param lazyModels models that exist but are only loaded once they are first drawn, see {@link LazyModelCache}
+     */
+    public static CosmeticIndex build(Map<ResourceLocation, CustomModel> models, Set<ResourceLocation> lazyModels,
+                                      Map<ResourceLocation, ModelMetadata> metadataMap) {
+        Set<ResourceLocation> modelIds = new LinkedHashSet<>(models.keySet());
+        modelIds.addAll(lazyModels);
+
+        Set<String> sortedVariants = new TreeSet<>();
+        for (ResourceLocation modelId : modelIds) {
+            ModelMetadata metadata = metadataMap.get(modelId);
+            if (metadata != null && !metadata.variant().isEmpty()) {
+                sortedVariants.add(metadata.variant());
+            }
+        }
+        String[] variantNames = new String[sortedVariants.size() + 1];
+        Object2IntMap<String> variantIds = new Object2IntOpenHashMap<>(sortedVariants.size());
+        variantNames[0] = "";
+        for (String variant : sortedVariants) {
+            variantIds.put(variant, variantIds.size() + 1);
+            variantNames[variantIds.size()] = variant;
+        }
+
+        // Per slot and item, the cosmetics of each variant id
+        Map<Item, Map<Integer, List<PreparedCosmetic>>>[] collected = newSlotArray();
+        for (int i = 0; i < collected.length; i++) {
+            collected[i] = new IdentityHashMap<>();
+        }
+        List<ItemStack> variantStacks = new ArrayList<>();
+        Set<List<Object>> seenVariantStacks = new HashSet<>();
+
+        int size = 0;
+        for (ResourceLocation modelId : modelIds) {
+            ModelMetadata metadata = metadataMap.get(modelId);
+            if (metadata == null) {
+                Individualism.LOGGER.error("Missing metadata for model: {}", modelId);
+                continue;
+            }
+
+            Item item = resolveItem(metadata.onItem());
+            if (item == null) {
+                Individualism.LOGGER.error("Unknown item '{}' in metadata for model: {}", metadata.onItem(), modelId);
+                continue;
+            }
+
+            EquipmentSlot slot = metadata.armorSlot().getSlot();
+            int variantId = variantIds.getInt(metadata.variant());
+            CustomModel model = models.get(modelId);
+            collected[slot.ordinal()].computeIfAbsent(item, k -> new HashMap<>())
+                    .computeIfAbsent(variantId, k -> new ArrayList<>())
+                    .add(model != null ? PreparedCosmetic.of(model, metadata) : PreparedCosmetic.lazy(metadata));
+            if (variantId != 0 && seenVariantStacks.add(List.of(item, metadata.variant()))) {
+                variantStacks.add(WearableItem.withVariant(item, metadata.variant()));
+            }
+            size++;
+        }
+
+        Map<Item, PreparedCosmetic[][]>[] bySlot = newSlotArray();
+        for (int i = 0; i < collected.length; i++) {
+            Map<Item, PreparedCosmetic[][]> slotMap = new IdentityHashMap<>();
+            for (Map.Entry<Item, Map<Integer, List<PreparedCosmetic>>> entry : collected[i].entrySet()) {
+                slotMap.put(entry.getKey(), toVariantArray(entry.getValue()));
+            }
+            bySlot[i] = slotMap;
+        }
+
+        variantStacks.sort(Comparator.comparing(WearableItem::getVariant));
+        return new CosmeticIndex(Map.copyOf(models), Map.copyOf(metadataMap), bySlot, variantNames, variantIds,
+                List.copyOf(variantStacks), size);
+    }
+
+    /**
+     * Cosmetics without a variant are part of every variant's array, so a lookup is a single array access
+     */
+    private static PreparedCosmetic[][] toVariantArray(Map<Integer, List<PreparedCosmetic>> byVariant) {
+        int maxVariant = 0;
+        for (int variantId : byVariant.keySet()) {
+            maxVariant = Math.max(maxVariant, variantId);
+        }
+
+        List<PreparedCosmetic> common = byVariant.getOrDefault(0, List.of());
+        PreparedCosmetic[][] result = new PreparedCosmetic[maxVariant + 1][];
+        for (int variantId = 0; variantId < result.length; variantId++) {
+            List<PreparedCosmetic> specific = byVariant.get(variantId);
+            if (variantId == 0 || specific == null) {
+                result[variantId] = common.toArray(NONE);
+            } else {
+                List<PreparedCosmetic> combined = new ArrayList<>(common);
+                combined.addAll(specific);
+                result[variantId] = combined.toArray(NONE);
+            }
+        }
+        return result;
+    }
+
+    private static Item resolveItem(String itemId) {
+        ResourceLocation location = ResourceLocation.tryParse(itemId);
+        if (location == null || !ForgeRegistries.ITEMS.containsKey(location)) {
+            return null;
+        }
+        Item item = ForgeRegistries.ITEMS.getValue(location);
+        // Air never shows up as an equipped item, so a cosmetic bound to it would never render
+        return item == Items.AIR ? null : item;
+    }
+
+    /**
+     * Get the cosmetics to draw for an item equipped in the given slot.
+     * Never returns null and never allocates.
+     */
+    public PreparedCosmetic[] get(EquipmentSlot slot, Item item, int variantId) {
+        PreparedCosmetic[][] byVariant = bySlot[slot.ordinal()].get(item);
+        if (byVariant == null) {
+            return NONE;
+        }
+        // Unknown variants and variants without cosmetics of their own fall back to the common ones
+        return variantId > 0 && variantId < byVariant.length ? byVariant[variantId] : byVariant[0];
+    }
+
+    public PreparedCosmetic[] get(EquipmentSlot slot, ItemStack stack) {
+        return get(slot, stack.getItem(), getVariantId(WearableItem.getVariant(stack)));
+    }
+
+    /**
+     * @return the dense id of a variant name, or 0 if it has no cosmetics
+     */
+    public int getVariantId(String variant) {
+        return variantIds.getInt(variant);
+    }
+
+    public String getVariantName(int variantId) {
+        return variantId >= 0 && variantId < variantNames.length ? variantNames[variantId] : "";
+    }
+
+    /**
+     * Number of variant ids including 0
+     */
+    public int getVariantCount() {
+        return variantNames.length;
+    }
+
+    /**
+     * One stack per variant cosmetic, sorted by variant name
+     */
+    public List<ItemStack> getVariantStacks() {
+        return variantStacks;
+    }
+
+    public CustomModel getModel(ResourceLocation modelId) {
+        return models.get(modelId);
+    }
+
+    public ModelMetadata getMetadata(ResourceLocation modelId) {
+        return metadata.get(modelId);
+    }
+
+    public Map<ResourceLocation, CustomModel> getModels() {
+        return models;
+    }
+
+    public Map<ResourceLocation, ModelMetadata> getMetadata() {
+        return metadata;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Map<Item, T>[] newSlotArray() {
+        return (Map<Item, T>[]) new Map[EquipmentSlot.values().length];
+    }
+
+    private static Map<Item, PreparedCosmetic[][]>[] emptySlots() {
+        Map<Item, PreparedCosmetic[][]>[] slots = newSlotArray();
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = Map.of();
+        }
+        return slots;
+    }
+
+    /**
+     * A model paired with its player offset, already converted from pixels to blocks.
+     * The cull values describe a vertical cylinder around the player's feet that contains
+     * the cosmetic for any body rotation. Lazily loaded cosmetics have no model and no cull values
+     * until {@link LazyModelCache} resolves them.
+     */
+    public record PreparedCosmetic(ResourceLocation modelId, @Nullable CustomModel model,
+                                   float offsetX, float offsetY, float offsetZ,
+                                   float cullRadius, float cullMinY, float cullMaxY) {
+        public static PreparedCosmetic of(CustomModel model, ModelMetadata metadata) {
+            return lazy(metadata).withModel(model);
+        }
+
+        public static PreparedCosmetic lazy(ModelMetadata metadata) {
+            return new PreparedCosmetic(metadata.modelId(), null,
+                    metadata.offsetX() / 16f, metadata.offsetY() / 16f, metadata.offsetZ() / 16f, 0f, 0f, 0f);
+        }
+
+        public PreparedCosmetic withModel(CustomModel model) {
+            float[] bounds = model.getBounds();
+            float maxX = Math.max(Math.abs(bounds[0] + offsetX), Math.abs(bounds[3] + offsetX));
+            float maxZ = Math.max(Math.abs(bounds[2] + offsetZ), Math.abs(bounds[5] + offsetZ));
+
+            return new PreparedCosmetic(modelId, model, offsetX, offsetY, offsetZ,
+                    (float) Math.sqrt(maxX * maxX + maxZ * maxZ), bounds[1] + offsetY, bounds[4] + offsetY);
+        }
+
+        public boolean isLoaded() {
+            return model != null;
+        }
+    }
+}
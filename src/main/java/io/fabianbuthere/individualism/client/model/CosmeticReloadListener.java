@@ -0,0 +1,129 @@
+package io.fabianbuthere.individualism.client.model;
+
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.profiling.ReloadPhaseEvent;
+import io.fabianbuthere.individualism.config.ClientConfig;
+import io.fabianbuthere.individualism.item.ModCreativeModeTabs;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.player.LocalPlayer;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.PreparableReloadListener;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.item.CreativeModeTab;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads models and metadata side by side and joins them into a {@link CosmeticIndex} on the background
+ * executor, where the models are also classified by their {@link ModelTransparency}. The game thread only
+ * binds atlas sprites, uploads vertex buffers and publishes the new index.
+ * With lazy model loading, model files are only listed and left to {@link LazyModelCache}.
+ */
+public class CosmeticReloadListener implements PreparableReloadListener {
+    private static final CosmeticReloadListener INSTANCE = new CosmeticReloadListener();
+    private static final String NAME = "cosmetics";
+
+    private CosmeticReloadListener() {
+    }
+
+    public static CosmeticReloadListener getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> reload(@NotNull PreparationBarrier barrier,
+                                                   @NotNull ResourceManager resourceManager,
+                                                   @NotNull ProfilerFiller preparationsProfiler,
+                                                   @NotNull ProfilerFiller reloadProfiler,
+                                                   @NotNull Executor backgroundExecutor,
+                                                   @NotNull Executor gameExecutor) {
+        boolean lazy = ClientConfig.lazyModelLoading;
+        CompletableFuture<ParallelJsonLoader.Prepared<CustomModel>> models = lazy
+                ? CompletableFuture.completedFuture(ParallelJsonLoader.Prepared.empty())
+                : CustomModelLoader.getInstance().load(resourceManager, backgroundExecutor);
+        CompletableFuture<Map<ResourceLocation, Resource>> lazyModels = lazy
+                ? CustomModelLoader.getInstance().list(resourceManager, backgroundExecutor)
+                : CompletableFuture.completedFuture(Map.of());
+        CompletableFuture<ParallelJsonLoader.Prepared<ModelMetadata>> metadata =
+                ModelMetadataLoader.getInstance().load(resourceManager, backgroundExecutor);
+
+        return CompletableFuture.allOf(models, lazyModels, metadata)
+                .thenApplyAsync(ignored -> {
+                    ReloadPhaseEvent indexing = ReloadPhaseEvent.start(NAME, "index");
+                    CosmeticIndex index = CosmeticIndex.build(models.join().values(), lazyModels.join().keySet(),
+                            metadata.join().values());
+                    indexing.finish(index.getMetadata().size());
+
+                    ReloadPhaseEvent classifying = ReloadPhaseEvent.start(NAME, "classify");
+                    TextureAlphaScanner scanner = new TextureAlphaScanner(resourceManager);
+                    Map<ResourceLocation, ModelTransparency[]> transparency = classify(index, scanner);
+                    classifying.finish(transparency.size());
+                    // Only lazily loaded models are classified later, otherwise the texture tables are dropped here
+                    return new Reload(models.join(), lazyModels.join(), metadata.join(), index, lazy ? scanner : null,
+                            transparency);
+                }, backgroundExecutor)
+                .thenCompose(barrier::wait)
+                .thenAcceptAsync(prepared -> apply(prepared, reloadProfiler), gameExecutor);
+    }
+
+    /**
+     * Models are only classified here and changed on the game thread, unchanged ones are still being drawn
+     */
+    private static Map<ResourceLocation, ModelTransparency[]> classify(CosmeticIndex index, TextureAlphaScanner scanner) {
+        Map<ResourceLocation, ModelTransparency[]> transparency = new HashMap<>();
+        int[] counts = new int[ModelTransparency.values().length];
+        for (Map.Entry<ResourceLocation, CustomModel> entry : index.getModels().entrySet()) {
+            ModelTransparency[] chosen = scanner.choose(entry.getValue(), index.getMetadata(entry.getKey()));
+            transparency.put(entry.getKey(), chosen);
+            for (ModelTransparency texture : chosen) {
+                counts[texture.ordinal()]++;
+            }
+        }
+        Individualism.LOGGER.info("Classified the textures of {} custom models: {} solid, {} cutout, {} translucent",
+                transparency.size(), counts[ModelTransparency.SOLID.ordinal()], counts[ModelTransparency.CUTOUT.ordinal()],
+                counts[ModelTransparency.TRANSLUCENT.ordinal()]);
+        return transparency;
+    }
+
+    private void apply(Reload prepared, ProfilerFiller profiler) {
+        ReloadPhaseEvent applying = ReloadPhaseEvent.start(NAME, "apply");
+        CustomModelLoader.getInstance().apply(CosmeticIndex.get().getModels(), prepared.index().getModels(),
+                prepared.transparency(), profiler);
+        LazyModelCache.getInstance().reset(prepared.lazyModels(), prepared.scanner());
+        Individualism.LOGGER.info("Loaded metadata for {} models, {} models are loaded lazily",
+                prepared.index().getMetadata().size(), prepared.lazyModels().size());
+
+        CosmeticIndex.publish(prepared.index());
+        rebuildCreativeTabs();
+        CustomModelLoader.getInstance().commit(prepared.models());
+        ModelMetadataLoader.getInstance().commit(prepared.metadata());
+        applying.finish(prepared.index().getModels().size());
+    }
+
+    /**
+     * Show the variants of the new index in the creative tabs without rejoining
+     */
+    private static void rebuildCreativeTabs() {
+        Minecraft minecraft = Minecraft.getInstance();
+        LocalPlayer player = minecraft.player;
+        // Tabs are built when the creative inventory is first opened in a level
+        if (player == null) {
+            return;
+        }
+        boolean hasPermissions = minecraft.options.operatorItemsTab().get() && player.canUseGameMasterBlocks();
+        ModCreativeModeTabs.rebuildContents(new CreativeModeTab.ItemDisplayParameters(player.connection.enabledFeatures(),
+                hasPermissions, player.level().registryAccess()));
+    }
+
+    private record Reload(ParallelJsonLoader.Prepared<CustomModel> models, Map<ResourceLocation, Resource> lazyModels,
+                            ParallelJsonLoader.Prepared<ModelMetadata> metadata, CosmeticIndex index,
+                            @Nullable TextureAlphaScanner scanner, Map<ResourceLocation, ModelTransparency[]> transparency) {
+    }
+}
@@ -1,62 +1,467 @@
 package io.fabianbuthere.individualism.client.model;
 
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
 import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexBuffer;
 import com.mojang.blaze3d.vertex.VertexConsumer;
 import com.mojang.math.Axis;
+import io.fabianbuthere.individualism.client.renderer.VertexBufferRenderer;
 import net.minecraft.client.renderer.MultiBufferSource;
 import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
 import org.joml.Matrix3f;
 import org.joml.Matrix4f;
+import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 /**
- * Represents a parsed Blockbench model that can be rendered
+ * Represents a parsed Blockbench model that can be rendered.
+ * <p>
+ * Faces may use different textures. Baked vertices are ordered by texture, so the faces of each texture
+ * are one contiguous range. Textures drawn with the same render type, e.g. several textures stitched into
+ * the cosmetic atlas with the same transparency, form one {@link Part} that is drawn with a single buffer.
  */
 public class CustomModel {
+    /**
+     * Floats per baked vertex: position (3), uv (2), normal (3)
+     */
+    public static final int VERTEX_STRIDE = 8;
+
+    private static final float[] IDENTITY_UV = {0f, 1f, 0f, 1f};
+    private static final Comparator<Part> BY_TRANSPARENCY = Comparator.comparing(part -> part.transparency);
+
     private final ResourceLocation modelId;
-    private final ResourceLocation textureLocation;
+    private final ResourceLocation[] textureLocations; // Referenced by the texture index of each face
     private final List<ModelElement> elements = new ArrayList<>();
     private final float[] renderOffset; // Rendering translation in pixels
+    private float[][] lodVertices = {new float[0]}; // Baked vertices per level of detail, see VERTEX_STRIDE
+    private int[][] lodTextureStarts; // Per level, the first vertex of each texture followed by the vertex count
+    private float[] bounds = new float[6]; // Baked min x, y, z and max x, y, z in blocks
+    // Per texture: the cosmetic atlas, or the own texture if it is not stitched
+    private final ResourceLocation[] renderTextureLocations;
+    // Per texture: u offset, u scale, v offset, v scale into the render texture
+    private final float[][] uvTransforms;
+    // Per texture: until classified, always drawn correctly
+    private final ModelTransparency[] transparencies;
+    private Part[] parts = null; // Grouped again on the render thread after any texture changed
 
-    public CustomModel(ResourceLocation modelId, ResourceLocation textureLocation, float[] renderOffset) {
+    public CustomModel(ResourceLocation modelId, List<ResourceLocation> textureLocations, float[] renderOffset) {
+        if (textureLocations.isEmpty()) {
+            throw new IllegalArgumentException("Model " + modelId + " has no textures");
+        }
         this.modelId = modelId;
-        this.textureLocation = textureLocation;
+        this.textureLocations = textureLocations.toArray(new ResourceLocation[0]);
+        this.renderTextureLocations = this.textureLocations.clone();
         this.renderOffset = renderOffset;
+
+        int textureCount = this.textureLocations.length;
+        this.uvTransforms = new float[textureCount][];
+        Arrays.fill(uvTransforms, IDENTITY_UV);
+        this.transparencies = new ModelTransparency[textureCount];
+        Arrays.fill(transparencies, ModelTransparency.TRANSLUCENT);
+        this.lodTextureStarts = new int[][]{new int[textureCount + 1]};
+    }
+
+    public CustomModel(ResourceLocation modelId, ResourceLocation textureLocation, float[] renderOffset) {
+        this(modelId, List.of(textureLocation), renderOffset);
     }
 
     public CustomModel(ResourceLocation modelId, ResourceLocation textureLocation) {
         this(modelId, textureLocation, new float[]{0f, 0f, 0f});
     }
 
+    /**
+     * Recreate an already baked model, e.g. from the compiled model cache. It has no elements.
+     */
+    public static CustomModel fromBaked(ResourceLocation modelId, List<ResourceLocation> textureLocations,
+                                        float[] renderOffset, float[][] lodVertices, int[][] lodTextureStarts,
+                                        float[] bounds) {
+        CustomModel model = new CustomModel(modelId, textureLocations, renderOffset);
+        model.lodVertices = lodVertices;
+        model.lodTextureStarts = lodTextureStarts;
+        model.bounds = bounds;
+        return model;
+    }
+
     public ResourceLocation getModelId() {
         return modelId;
     }
 
-    public ResourceLocation getTextureLocation() {
-        return textureLocation;
+    public int getTextureCount() {
+        return textureLocations.length;
+    }
+
+    public ResourceLocation getTextureLocation(int texture) {
+        return textureLocations[texture];
+    }
+
+    /**
+     * Draw the faces of a texture from a sprite of a stitched atlas instead of the texture itself.
+     * Baked UVs stay in texture space and are mapped into the sprite when emitted.
+     *
+     * @return whether the render texture or the UV transform changed
+     */
+    public boolean setAtlasSprite(int texture, @Nullable TextureAtlasSprite sprite) {
+        ResourceLocation previousTexture = renderTextureLocations[texture];
+        float[] previousTransform = uvTransforms[texture];
+
+        if (sprite == null) {
+            renderTextureLocations[texture] = textureLocations[texture];
+            uvTransforms[texture] = IDENTITY_UV;
+        } else {
+            renderTextureLocations[texture] = sprite.atlasLocation();
+            uvTransforms[texture] = new float[]{
+                    sprite.getU0(), sprite.getU1() - sprite.getU0(),
+                    sprite.getV0(), sprite.getV1() - sprite.getV0()
+            };
+        }
+
+        boolean changed = !renderTextureLocations[texture].equals(previousTexture)
+                || !Arrays.equals(uvTransforms[texture], previousTransform);
+        if (changed) {
+            invalidateParts();
+        }
+        return changed;
+    }
+
+    public ModelTransparency getTransparency(int texture) {
+        return transparencies[texture];
+    }
+
+    /**
+     * Set how the faces of a texture are drawn, see {@link TextureAlphaScanner}
+     *
+     * @return whether the transparency changed
+     */
+    public boolean setTransparency(int texture, ModelTransparency transparency) {
+        if (transparencies[texture] == transparency) {
+            return false;
+        }
+        transparencies[texture] = transparency;
+        invalidateParts();
+        return true;
+    }
+
+    /**
+     * Get the faces grouped by render type, cheapest transparency first. Must be called on the render thread.
+     */
+    public Part[] getParts() {
+        if (parts == null) {
+            parts = groupParts();
+        }
+        return parts;
+    }
+
+    private Part[] groupParts() {
+        List<Part> grouped = new ArrayList<>();
+        int[] starts = lodTextureStarts[0];
+        for (int texture = 0; texture < textureLocations.length; texture++) {
+            // Coarser levels only drop faces, so a texture without faces in the full model has none at all
+            if (starts[texture] == starts[texture + 1]) {
+                continue;
+            }
+
+            Part part = null;
+            for (Part candidate : grouped) {
+                if (candidate.transparency == transparencies[texture]
+                        && candidate.renderTextureLocation.equals(renderTextureLocations[texture])) {
+                    part = candidate;
+                    break;
+                }
+            }
+            if (part == null) {
+                part = new Part(transparencies[texture], renderTextureLocations[texture]);
+                grouped.add(part);
+            }
+            part.textures = Arrays.copyOf(part.textures, part.textures.length + 1);
+            part.textures[part.textures.length - 1] = texture;
+        }
+
+        grouped.sort(BY_TRANSPARENCY);
+        return grouped.toArray(new Part[0]);
+    }
+
+    private void invalidateParts() {
+        closeVertexBuffers();
+        parts = null;
     }
 
     public void addElement(ModelElement element) {
         elements.add(element);
     }
 
-    public void render(PoseStack poseStack, MultiBufferSource buffer, int packedLight, int packedOverlay) {
-        VertexConsumer vertexConsumer = buffer.getBuffer(RenderType.entityTranslucentCull(textureLocation));
+    public List<ModelElement> getElements() {
+        return elements;
+    }
 
-        poseStack.pushPose();
+    public void replaceElements(List<ModelElement> newElements) {
+        elements.clear();
+        elements.addAll(newElements);
+    }
+
+    public int getQuadCount() {
+        int quads = 0;
+        for (ModelElement element : elements) {
+            quads += element.faces.size();
+        }
+        return quads;
+    }
+
+    /**
+     * Optimize the parsed elements and bake them, the way every model is prepared after parsing
+     */
+    public void optimizeAndBake() {
+        ModelOptimizer.optimize(this);
+        bake();
+    }
+
+    /**
+     * Bake the full model and all coarser levels of detail generated from it
+     */
+    public void bake() {
+        List<List<ModelElement>> levels = ModelLodGenerator.generate(elements);
 
-        poseStack.scale(1/16f, 1/16f, 1/16f);
-        poseStack.translate(renderOffset[0], renderOffset[1], renderOffset[2]);
+        float[][] baked = new float[levels.size()][];
+        int[][] starts = new int[levels.size()][];
+        for (int i = 0; i < baked.length; i++) {
+            // Levels identical to the finer one share its array (and vertex buffers)
+            if (i > 0 && levels.get(i) == levels.get(i - 1)) {
+                baked[i] = baked[i - 1];
+                starts[i] = starts[i - 1];
+            } else {
+                starts[i] = new int[textureLocations.length + 1];
+                baked[i] = bake(levels.get(i), renderOffset, starts[i]);
+            }
+        }
+
+        this.lodVertices = baked;
+        this.lodTextureStarts = starts;
+        this.bounds = computeBounds(baked[0]);
+    }
+
+    private static float[] computeBounds(float[] vertices) {
+        if (vertices.length == 0) {
+            return new float[6];
+        }
+
+        float[] result = {
+                Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY
+        };
+        for (int i = 0; i < vertices.length; i += VERTEX_STRIDE) {
+            for (int axis = 0; axis < 3; axis++) {
+                result[axis] = Math.min(result[axis], vertices[i + axis]);
+                result[axis + 3] = Math.max(result[axis + 3], vertices[i + axis]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Axis aligned bounds of the full model after element rotations and the render offset,
+     * as min x, y, z followed by max x, y, z in blocks
+     */
+    public float[] getBounds() {
+        return bounds;
+    }
 
+    /**
+     * Bake the faces of one texture after the other, so each texture is a contiguous range of vertices
+     *
+     * @param textureStarts receives the first vertex of each texture followed by the vertex count
+     */
+    private static float[] bake(List<ModelElement> elements, float[] renderOffset, int[] textureStarts) {
+        int textureCount = textureStarts.length - 1;
+        int faceCount = 0;
         for (ModelElement element : elements) {
-            element.render(poseStack, vertexConsumer, packedLight, packedOverlay);
+            for (ModelFace face : element.faces) {
+                if (face.texture < textureCount) {
+                    faceCount++;
+                }
+            }
+        }
+
+        float[] baked = new float[faceCount * 4 * VERTEX_STRIDE];
+        int offset = 0;
+        for (int texture = 0; texture < textureCount; texture++) {
+            textureStarts[texture] = offset / VERTEX_STRIDE;
+            for (ModelElement element : elements) {
+                offset = element.bake(baked, offset, renderOffset, texture);
+            }
+        }
+        textureStarts[textureCount] = offset / VERTEX_STRIDE;
+        return baked;
+    }
+
+    public float[] getRenderOffset() {
+        return renderOffset;
+    }
+
+    public int getLodCount() {
+        return lodVertices.length;
+    }
+
+    public float[] getVertices(int lod) {
+        return lodVertices[lod];
+    }
+
+    /**
+     * @return the first vertex of each texture in {@link #getVertices}, followed by the vertex count
+     */
+    public int[] getTextureStarts(int lod) {
+        return lodTextureStarts[lod];
+    }
+
+    public int getVertexCount(int lod) {
+        return lodVertices[lod].length / VERTEX_STRIDE;
+    }
+
+    /**
+     * Approximate memory held by the baked vertices of every level, on the heap and, once uploaded, on the GPU
+     */
+    public long estimateMemoryBytes() {
+        long bytes = 0;
+        for (int i = 0; i < lodVertices.length; i++) {
+            if (i > 0 && lodVertices[i] == lodVertices[i - 1]) {
+                continue;
+            }
+            bytes += (long) lodVertices[i].length * Float.BYTES;
+            if (hasVertexBuffers()) {
+                bytes += (long) lodVertices[i].length / VERTEX_STRIDE * DefaultVertexFormat.NEW_ENTITY.getVertexSize();
+            }
         }
+        return bytes;
+    }
+
+    /**
+     * Upload the baked vertices of every part and level to the GPU. Must be called on the render thread.
+     */
+    public void uploadVertexBuffers() {
+        closeVertexBuffers();
+
+        for (Part part : getParts()) {
+            VertexBuffer[] buffers = new VertexBuffer[lodVertices.length];
+            for (int i = 0; i < buffers.length; i++) {
+                if (i > 0 && lodVertices[i] == lodVertices[i - 1]) {
+                    buffers[i] = buffers[i - 1];
+                } else if (part.getVertexCount(lodTextureStarts[i]) > 0) {
+                    buffers[i] = VertexBufferRenderer.upload(this, i, part);
+                }
+            }
+            part.vertexBuffers = buffers;
+        }
+    }
 
-        poseStack.popPose();
+    public boolean hasVertexBuffers() {
+        return parts != null && parts.length > 0 && parts[0].vertexBuffers.length > 0;
+    }
+
+    public void closeVertexBuffers() {
+        if (parts == null) {
+            return;
+        }
+        for (Part part : parts) {
+            VertexBuffer[] buffers = part.vertexBuffers;
+            for (int i = 0; i < buffers.length; i++) {
+                if (buffers[i] != null && (i == 0 || buffers[i] != buffers[i - 1])) {
+                    buffers[i].close();
+                }
+            }
+            part.vertexBuffers = new VertexBuffer[0];
+        }
+    }
+
+    public void render(PoseStack poseStack, MultiBufferSource buffer, int packedLight, int packedOverlay) {
+        render(poseStack, buffer, 0, packedLight, packedOverlay);
+    }
+
+    public void render(PoseStack poseStack, MultiBufferSource buffer, int lod, int packedLight, int packedOverlay) {
+        for (Part part : getParts()) {
+            VertexBuffer vertexBuffer = part.getVertexBuffer(lod);
+
+            if (vertexBuffer != null && VertexBufferRenderer.isActive()) {
+                VertexBufferRenderer.draw(vertexBuffer, part.renderType, poseStack.last(), packedLight, packedOverlay);
+            } else {
+                emit(buffer.getBuffer(part.renderType), lod, part, poseStack.last().pose(), poseStack.last().normal(),
+                        packedLight, packedOverlay);
+            }
+        }
+    }
+
+    /**
+     * Write the baked vertices of one part and level into a consumer, transformed by the given pose
+     */
+    public void emit(VertexConsumer vertexConsumer, int lod, Part part, Matrix4f pose, Matrix3f normal,
+                     int packedLight, int packedOverlay) {
+        float[] vertices = lodVertices[lod];
+        int[] starts = lodTextureStarts[lod];
+
+        for (int texture : part.textures) {
+            float[] uvTransform = uvTransforms[texture];
+            float uOffset = uvTransform[0];
+            float uScale = uvTransform[1];
+            float vOffset = uvTransform[2];
+            float vScale = uvTransform[3];
+
+            int end = starts[texture + 1] * VERTEX_STRIDE;
+            for (int i = starts[texture] * VERTEX_STRIDE; i < end; i += VERTEX_STRIDE) {
+                vertexConsumer.vertex(pose, vertices[i], vertices[i + 1], vertices[i + 2])
+                        .color(255, 255, 255, 255)
+                        .uv(uOffset + vertices[i + 3] * uScale, vOffset + vertices[i + 4] * vScale)
+                        .overlayCoords(packedOverlay)
+                        .uv2(packedLight)
+                        .normal(normal, vertices[i + 5], vertices[i + 6], vertices[i + 7])
+                        .endVertex();
+            }
+        }
+    }
+
+    /**
+     * The faces of one or more textures that share a render type
+     */
+    public static final class Part {
+        private final ModelTransparency transparency;
+        private final ResourceLocation renderTextureLocation;
+        private final RenderType renderType;
+        private int[] textures = new int[0];
+        private VertexBuffer[] vertexBuffers = new VertexBuffer[0]; // Only present in vertex buffer render mode
+
+        private Part(ModelTransparency transparency, ResourceLocation renderTextureLocation) {
+            this.transparency = transparency;
+            this.renderTextureLocation = renderTextureLocation;
+            this.renderType = transparency.getRenderType(renderTextureLocation);
+        }
+
+        public ModelTransparency getTransparency() {
+            return transparency;
+        }
+
+        public ResourceLocation getRenderTextureLocation() {
+            return renderTextureLocation;
+        }
+
+        public RenderType getRenderType() {
+            return renderType;
+        }
+
+        public VertexBuffer getVertexBuffer(int lod) {
+            return lod < vertexBuffers.length ? vertexBuffers[lod] : null;
+        }
+
+        private int getVertexCount(int[] textureStarts) {
+            int vertices = 0;
+            for (int texture : textures) {
+                vertices += textureStarts[texture + 1] - textureStarts[texture];
+            }
+            return vertices;
+        }
     }
 
     /**
@@ -85,23 +490,52 @@ public class CustomModel {
             faces.add(face);
         }
 
-        public void render(PoseStack poseStack, VertexConsumer buffer, int packedLight, int packedOverlay) {
-            poseStack.pushPose();
+        public Vector3f getFrom() {
+            return from;
+        }
 
-            if (rotationAxis != null && rotationAngle != 0) {
-                poseStack.translate(rotationOrigin.x(), rotationOrigin.y(), rotationOrigin.z());
-                poseStack.mulPose(rotationAxis.rotationDegrees(rotationAngle));
-                poseStack.translate(-rotationOrigin.x(), -rotationOrigin.y(), -rotationOrigin.z());
-            }
+        public Vector3f getTo() {
+            return to;
+        }
 
-            Matrix4f pose = poseStack.last().pose();
-            Matrix3f normal = poseStack.last().normal();
+        public String getName() {
+            return name;
+        }
 
-            for (ModelFace face : faces) {
-                face.render(buffer, pose, normal, packedLight, packedOverlay, from, to);
+        public boolean isRotated() {
+            return rotationAxis != null && rotationAngle != 0;
+        }
+
+        public List<ModelFace> getFaces() {
+            return faces;
+        }
+
+        /**
+         * Copy of this element with a different set of faces
+         */
+        public ModelElement withFaces(List<ModelFace> newFaces) {
+            ModelElement copy = new ModelElement(name, from, to, rotationOrigin, rotationAngle, rotationAxis);
+            copy.faces.addAll(newFaces);
+            return copy;
+        }
+
+        /**
+         * Bake the faces of one texture
+         */
+        private int bake(float[] out, int offset, float[] renderOffset, int texture) {
+            Quaternionf rotation = null;
+            if (isRotated()) {
+                rotation = rotationAxis.rotationDegrees(rotationAngle);
             }
 
-            poseStack.popPose();
+            VertexBaker baker = new VertexBaker(out, rotation, rotationOrigin, renderOffset);
+            baker.offset = offset;
+            for (ModelFace face : faces) {
+                if (face.texture == texture) {
+                    face.bake(baker, from, to);
+                }
+            }
+            return baker.offset;
         }
     }
 
@@ -115,17 +549,53 @@ public class CustomModel {
 
         private final Direction direction;
         private final float u1, v1, u2, v2;
+        private final int texture; // Index into the textures of the model
 
-        public ModelFace(Direction direction, float u1, float v1, float u2, float v2) {
+        public ModelFace(Direction direction, float u1, float v1, float u2, float v2, int texture) {
             this.direction = direction;
             this.u1 = u1;
             this.v1 = v1;
             this.u2 = u2;
             this.v2 = v2;
+            this.texture = texture;
+        }
+
+        public ModelFace(Direction direction, float u1, float v1, float u2, float v2) {
+            this(direction, u1, v1, u2, v2, 0);
+        }
+
+        /**
+         * Copy of this face using another texture of the model
+         */
+        public ModelFace withTexture(int newTexture) {
+            return new ModelFace(direction, u1, v1, u2, v2, newTexture);
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        public float getU1() {
+            return u1;
+        }
+
+        public float getV1() {
+            return v1;
+        }
+
+        public float getU2() {
+            return u2;
+        }
+
+        public float getV2() {
+            return v2;
         }
 
-        public void render(VertexConsumer buffer, Matrix4f pose, Matrix3f normal,
-                           int packedLight, int packedOverlay, Vector3f from, Vector3f to) {
+        public int getTexture() {
+            return texture;
+        }
+
+        private void bake(VertexBaker baker, Vector3f from, Vector3f to) {
             float x1 = from.x();
             float y1 = from.y();
             float z1 = from.z();
@@ -133,71 +603,105 @@ public class CustomModel {
             float y2 = to.y();
             float z2 = to.z();
 
-            float nx = 0, ny = 0, nz = 0;
+            baker.normal(direction);
 
             // CW winding
             switch (direction) {
                 case NORTH -> {
                     // -Z face
-                    nz = -1;
-                    addVertex(buffer, pose, normal, x1, y2, z1, u1, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x2, y2, z1, u2, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x2, y1, z1, u2, v2, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x1, y1, z1, u1, v2, nx, ny, nz, packedLight, packedOverlay);
+                    baker.vertex(x1, y2, z1, u1, v1);
+                    baker.vertex(x2, y2, z1, u2, v1);
+                    baker.vertex(x2, y1, z1, u2, v2);
+                    baker.vertex(x1, y1, z1, u1, v2);
                 }
                 case SOUTH -> {
                     // +Z face
-                    nz = 1;
-                    addVertex(buffer, pose, normal, x2, y1, z2, u2, v2, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x2, y2, z2, u2, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x1, y2, z2, u1, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x1, y1, z2, u1, v2, nx, ny, nz, packedLight, packedOverlay);
+                    baker.vertex(x2, y1, z2, u2, v2);
+                    baker.vertex(x2, y2, z2, u2, v1);
+                    baker.vertex(x1, y2, z2, u1, v1);
+                    baker.vertex(x1, y1, z2, u1, v2);
                 }
                 case WEST -> {
                     // -X face
-                    nx = -1;
-                    addVertex(buffer, pose, normal, x1, y1, z2, u2, v2, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x1, y2, z2, u2, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x1, y2, z1, u1, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x1, y1, z1, u1, v2, nx, ny, nz, packedLight, packedOverlay);
+                    baker.vertex(x1, y1, z2, u2, v2);
+                    baker.vertex(x1, y2, z2, u2, v1);
+                    baker.vertex(x1, y2, z1, u1, v1);
+                    baker.vertex(x1, y1, z1, u1, v2);
                 }
                 case EAST -> {
                     // +X face
-                    nx = 1;
-                    addVertex(buffer, pose, normal, x2, y1, z1, u2, v2, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x2, y2, z1, u2, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x2, y2, z2, u1, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x2, y1, z2, u1, v2, nx, ny, nz, packedLight, packedOverlay);
+                    baker.vertex(x2, y1, z1, u2, v2);
+                    baker.vertex(x2, y2, z1, u2, v1);
+                    baker.vertex(x2, y2, z2, u1, v1);
+                    baker.vertex(x2, y1, z2, u1, v2);
                 }
                 case UP -> {
                     // +Y face
-                    ny = 1;
-                    addVertex(buffer, pose, normal, x1, y2, z2, u1, v2, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x2, y2, z2, u2, v2, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x2, y2, z1, u2, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x1, y2, z1, u1, v1, nx, ny, nz, packedLight, packedOverlay);
+                    baker.vertex(x1, y2, z2, u1, v2);
+                    baker.vertex(x2, y2, z2, u2, v2);
+                    baker.vertex(x2, y2, z1, u2, v1);
+                    baker.vertex(x1, y2, z1, u1, v1);
                 }
                 case DOWN -> {
                     // -Y face
-                    ny = -1;
-                    addVertex(buffer, pose, normal, x1, y1, z1, u1, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x2, y1, z1, u2, v1, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x2, y1, z2, u2, v2, nx, ny, nz, packedLight, packedOverlay);
-                    addVertex(buffer, pose, normal, x1, y1, z2, u1, v2, nx, ny, nz, packedLight, packedOverlay);
+                    baker.vertex(x1, y1, z1, u1, v1);
+                    baker.vertex(x2, y1, z1, u2, v1);
+                    baker.vertex(x2, y1, z2, u2, v2);
+                    baker.vertex(x1, y1, z2, u1, v2);
                 }
             }
         }
+    }
+
+    /**
+     * Writes vertices of one element into the packed array, applying the element rotation,
+     * the model render offset and the pixel to block scale
+     */
+    private static class VertexBaker {
+        private final float[] out;
+        private final Quaternionf rotation;
+        private final Vector3f origin;
+        private final float[] renderOffset;
+        private final Vector3f scratch = new Vector3f();
+        private final Vector3f normal = new Vector3f();
+        private int offset;
+
+        private VertexBaker(float[] out, Quaternionf rotation, Vector3f origin, float[] renderOffset) {
+            this.out = out;
+            this.rotation = rotation;
+            this.origin = origin;
+            this.renderOffset = renderOffset;
+        }
+
+        private void normal(ModelFace.Direction direction) {
+            switch (direction) {
+                case NORTH -> normal.set(0, 0, -1);
+                case SOUTH -> normal.set(0, 0, 1);
+                case WEST -> normal.set(-1, 0, 0);
+                case EAST -> normal.set(1, 0, 0);
+                case UP -> normal.set(0, 1, 0);
+                case DOWN -> normal.set(0, -1, 0);
+            }
+            if (rotation != null) {
+                normal.rotate(rotation);
+            }
+        }
+
+        private void vertex(float x, float y, float z, float u, float v) {
+            scratch.set(x, y, z);
+            if (rotation != null) {
+                scratch.sub(origin).rotate(rotation).add(origin);
+            }
 
-        private void addVertex(VertexConsumer buffer, Matrix4f pose, Matrix3f normal,
-                               float x, float y, float z, float u, float v,
-                               float nx, float ny, float nz, int packedLight, int packedOverlay) {
-            buffer.vertex(pose, x, y, z)
-                    .color(255, 255, 255, 255)
-                    .uv(u, v)
-                    .overlayCoords(packedOverlay)
-                    .uv2(packedLight)
-                    .normal(normal, nx, ny, nz)
-                    .endVertex();
+            out[offset] = (scratch.x() + renderOffset[0]) / 16f;
+            out[offset + 1] = (scratch.y() + renderOffset[1]) / 16f;
+            out[offset + 2] = (scratch.z() + renderOffset[2]) / 16f;
+            out[offset + 3] = u;
+            out[offset + 4] = v;
+            out[offset + 5] = normal.x();
+            out[offset + 6] = normal.y();
+            out[offset + 7] = normal.z();
+            offset += VERTEX_STRIDE;
         }
     }
 }
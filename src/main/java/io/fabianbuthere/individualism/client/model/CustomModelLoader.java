@@ -1,30 +1,32 @@
 package io.fabianbuthere.individualism.client.model;
 
-import com.google.gson.*;
-import com.mojang.math.Axis;
+import com.google.gson.stream.JsonReader;
 import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.renderer.CosmeticAtlas;
+import io.fabianbuthere.individualism.client.renderer.CosmeticBatcher;
+import io.fabianbuthere.individualism.client.renderer.VertexBufferRenderer;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.resources.ResourceLocation;
-import net.minecraft.server.packs.resources.ResourceManager;
-import net.minecraft.server.packs.resources.SimpleJsonResourceReloadListener;
 import net.minecraft.util.profiling.ProfilerFiller;
-import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.joml.Vector3f;
 
-import java.util.HashMap;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Loads and parses custom models from JSON files
  */
-public class CustomModelLoader extends SimpleJsonResourceReloadListener {
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+public class CustomModelLoader extends ParallelJsonLoader<CustomModel> {
     private static final CustomModelLoader INSTANCE = new CustomModelLoader();
 
-    private final Map<ResourceLocation, CustomModel> models = new HashMap<>();
+    private boolean vertexBuffersActive = false; // Render mode the loaded models were last uploaded for
 
     private CustomModelLoader() {
-        super(GSON, "models/custom");
+        super("models/custom");
     }
 
     public static CustomModelLoader getInstance() {
@@ -32,186 +34,134 @@ public class CustomModelLoader extends SimpleJsonResourceReloadListener {
     }
 
     @Override
-    protected void apply(Map<ResourceLocation, JsonElement> resources, @NotNull ResourceManager resourceManager,
-                         @NotNull ProfilerFiller profiler) {
-        models.clear();
-
-        profiler.push("Loading custom models");
-
-        for (Map.Entry<ResourceLocation, JsonElement> entry : resources.entrySet()) {
-            ResourceLocation modelId = entry.getKey();
-
-            try {
-                String path = modelId.getPath();
-                if (path.endsWith(".json")) {
-                    path = path.substring(0, path.length() - 5);
-                }
-                ResourceLocation cleanModelId = ResourceLocation.fromNamespaceAndPath(modelId.getNamespace(), path);
-
-                JsonObject modelJson = entry.getValue().getAsJsonObject();
-
-                CustomModel model = parseModel(cleanModelId, modelJson);
-                models.put(cleanModelId, model);
-                Individualism.LOGGER.info("Loaded custom model: {}", cleanModelId);
-
-            } catch (Exception e) {
-                Individualism.LOGGER.error("Failed to load custom model: {}", modelId, e);
-            }
-        }
+    protected CustomModel read(ResourceLocation modelId, JsonReader reader) throws IOException {
+        return ModelJsonReader.readModel(modelId, reader);
+    }
 
-        profiler.pop();
-        Individualism.LOGGER.info("Loaded {} custom models", models.size());
+    @Override
+    protected CustomModel prepare(ResourceLocation modelId, CustomModel model) {
+        model.optimizeAndBake();
+        Individualism.LOGGER.info("Loaded custom model: {}", modelId);
+        return model;
     }
 
-    private float[] parseFloatArray(JsonArray array, int expectedLength) {
-        float[] result = new float[expectedLength];
-        for (int i = 0; i < expectedLength && i < array.size(); i++) {
-            result[i] = array.get(i).getAsFloat();
-        }
-        return result;
+    @Override
+    protected void encode(CustomModel model, DataOutput out) throws IOException {
+        CompiledFormat.writeModel(model, out);
     }
 
-    private CustomModel parseModel(ResourceLocation modelId, JsonObject modelJson) {
-        ResourceLocation textureLocation = parseTextureLocation(modelJson);
+    @Override
+    protected CustomModel decode(ResourceLocation modelId, ByteBuffer in) {
+        return CompiledFormat.readModel(modelId, in);
+    }
 
-        final CustomModel model;
-        if (modelJson.has("playerTranslation") && modelJson.get("playerTranslation").isJsonArray()) {
-            model = new CustomModel(modelId, textureLocation, parseFloatArray(modelJson.getAsJsonArray("playerTranslation"), 3));
-        } else {
-            model = new CustomModel(modelId, textureLocation);
+    /**
+     * Bind the new models to the atlas and move their GPU resources over from the previous models.
+     * Called on the game thread before the new models are published.
+     */
+    void apply(Map<ResourceLocation, CustomModel> previous, Map<ResourceLocation, CustomModel> prepared,
+               Map<ResourceLocation, ModelTransparency[]> transparency, ProfilerFiller profiler) {
+        // Unchanged files come back as the same instance and keep their vertex buffers
+        for (Map.Entry<ResourceLocation, CustomModel> entry : previous.entrySet()) {
+            if (prepared.get(entry.getKey()) != entry.getValue()) {
+                entry.getValue().closeVertexBuffers();
+            }
         }
-
-        if (modelJson.has("elements") && modelJson.get("elements").isJsonArray()) {
-            JsonArray elements = modelJson.getAsJsonArray("elements");
-            for (JsonElement elementElem : elements) {
-                if (elementElem.isJsonObject()) {
-                    JsonObject elementJson = elementElem.getAsJsonObject();
-                    CustomModel.ModelElement element = parseElement(elementJson);
-                    if (element != null) {
-                        model.addElement(element);
-                    }
-                }
+        CosmeticBatcher.clear();
+
+        profiler.push("Applying custom models");
+
+        // Only uploaded for the vertex buffer render mode, they would just take up memory otherwise
+        boolean uploadVertexBuffers = VertexBufferRenderer.isActive();
+        vertexBuffersActive = uploadVertexBuffers;
+        Set<TextureAtlasSprite> usedSprites = new HashSet<>();
+        int uploaded = 0;
+
+        for (CustomModel model : prepared.values()) {
+            boolean changed = setTransparency(model, transparency.get(model.getModelId()));
+            changed |= bindAtlasSprites(model, usedSprites);
+            if (!uploadVertexBuffers) {
+                model.closeVertexBuffers();
+            } else if (changed || !model.hasVertexBuffers()) {
+                // Faces are uploaded per render type, with the atlas UV transform applied
+                model.uploadVertexBuffers();
+                uploaded++;
             }
         }
 
-        return model;
+        profiler.pop();
+        Individualism.LOGGER.info("Loaded {} custom models, uploaded {} to the GPU", prepared.size(), uploaded);
+        CosmeticAtlas.getInstance().updateStats(usedSprites);
     }
 
-    private ResourceLocation parseTextureLocation(JsonObject modelJson) {
-        if (modelJson.has("textures") && modelJson.get("textures").isJsonObject()) {
-            JsonObject textures = modelJson.getAsJsonObject("textures");
-
-            String texturePath = null;
-            if (textures.has("0")) {
-                texturePath = textures.get("0").getAsString();
-            } else if (textures.has("particle")) {
-                texturePath = textures.get("particle").getAsString();
-            } else if (!textures.entrySet().isEmpty()) {
-                texturePath = textures.entrySet().iterator().next().getValue().getAsString();
-            }
-
-            if (texturePath != null) {
-                String[] parts = texturePath.split(":");
-                if (parts.length == 2) {
-                    return ResourceLocation.fromNamespaceAndPath(parts[0], "textures/" + parts[1] + ".png");
-                }
-            }
+    /**
+     * Bind a model loaded outside of a reload to the atlas and upload it. Called on the render thread.
+     */
+    void activate(CustomModel model) {
+        bindAtlasSprites(model, null);
+        if (VertexBufferRenderer.isActive()) {
+            model.uploadVertexBuffers();
         }
-
-        return ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID,"textures/armor/default.png");
     }
 
-    private CustomModel.ModelElement parseElement(JsonObject elementJson) {
-        try {
-            String name = elementJson.has("name") ? elementJson.get("name").getAsString() : "unnamed";
-
-            Vector3f from = parseVector3f(elementJson.getAsJsonArray("from"));
-            Vector3f to = parseVector3f(elementJson.getAsJsonArray("to"));
-
-            Vector3f rotationOrigin = new Vector3f(8, 8, 8);
-            float rotationAngle = 0;
-            Axis rotationAxis = null;
-
-            if (elementJson.has("rotation") && elementJson.get("rotation").isJsonObject()) {
-                JsonObject rotation = elementJson.getAsJsonObject("rotation");
-
-                if (rotation.has("origin") && rotation.get("origin").isJsonArray()) {
-                    rotationOrigin = parseVector3f(rotation.getAsJsonArray("origin"));
-                }
-
-                if (rotation.has("angle") && rotation.get("angle").isJsonPrimitive()) {
-                    rotationAngle = rotation.get("angle").getAsFloat();
-                }
-
-                if (rotation.has("axis") && rotation.get("axis").isJsonPrimitive()) {
-                    String axis = rotation.get("axis").getAsString();
-                    switch (axis.toLowerCase()) {
-                        case "x" -> rotationAxis = Axis.XP;
-                        case "y" -> rotationAxis = Axis.YP;
-                        case "z" -> rotationAxis = Axis.ZP;
-                    }
-                }
-            }
-
-            CustomModel.ModelElement element = new CustomModel.ModelElement(
-                    name, from, to, rotationOrigin, rotationAngle, rotationAxis
-            );
-
-            if (elementJson.has("faces") && elementJson.get("faces").isJsonObject()) {
-                JsonObject faces = elementJson.getAsJsonObject("faces");
+    /**
+     * Upload or close the vertex buffers of all loaded models after the render mode was switched.
+     * Called on the render thread before cosmetics are collected for a frame.
+     */
+    public void updateRenderMode() {
+        boolean active = VertexBufferRenderer.isActive();
+        if (active == vertexBuffersActive) {
+            return;
+        }
+        vertexBuffersActive = active;
 
-                parseFace(faces, "north", CustomModel.ModelFace.Direction.NORTH, element);
-                parseFace(faces, "east", CustomModel.ModelFace.Direction.EAST, element);
-                parseFace(faces, "south", CustomModel.ModelFace.Direction.SOUTH, element);
-                parseFace(faces, "west", CustomModel.ModelFace.Direction.WEST, element);
-                parseFace(faces, "up", CustomModel.ModelFace.Direction.UP, element);
-                parseFace(faces, "down", CustomModel.ModelFace.Direction.DOWN, element);
+        for (CustomModel model : CosmeticIndex.get().getModels().values()) {
+            if (active) {
+                model.uploadVertexBuffers();
+            } else {
+                model.closeVertexBuffers();
             }
-
-            return element;
-
-        } catch (Exception e) {
-            Individualism.LOGGER.error("Error parsing model element", e);
-            return null;
         }
+        // Lazily loaded models count their vertex buffers against the memory budget, so they are loaded again
+        LazyModelCache.getInstance().unloadAll();
+        Individualism.LOGGER.info("Cosmetic vertex buffers {}", active ? "uploaded" : "closed");
     }
 
-    private void parseFace(JsonObject faces, String faceName, CustomModel.ModelFace.Direction direction,
-                           CustomModel.ModelElement element) {
-        if (faces.has(faceName) && faces.get(faceName).isJsonObject()) {
-            JsonObject faceJson = faces.getAsJsonObject(faceName);
-
-            if (faceJson.has("uv") && faceJson.get("uv").isJsonArray()) {
-                JsonArray uvArray = faceJson.getAsJsonArray("uv");
-                if (uvArray.size() >= 4) {
-                    float u1 = uvArray.get(0).getAsFloat() / 16f;
-                    float v1 = uvArray.get(1).getAsFloat() / 16f;
-                    float u2 = uvArray.get(2).getAsFloat() / 16f;
-                    float v2 = uvArray.get(3).getAsFloat() / 16f;
-
-                    CustomModel.ModelFace face = new CustomModel.ModelFace(direction, u1, v1, u2, v2);
-                    element.addFace(face);
-                }
-            }
+    /**
+     * @param transparency per texture, or null if the model was not classified
+     * @return whether the model is drawn with different render types than before
+     */
+    private static boolean setTransparency(CustomModel model, @Nullable ModelTransparency[] transparency) {
+        boolean changed = false;
+        for (int i = 0; i < model.getTextureCount(); i++) {
+            changed |= model.setTransparency(i, transparency != null ? transparency[i] : ModelTransparency.TRANSLUCENT);
         }
+        return changed;
     }
 
-    private Vector3f parseVector3f(JsonArray array) {
-        if (array.size() >= 3) {
-            return new Vector3f(
-                    array.get(0).getAsFloat(),
-                    array.get(1).getAsFloat(),
-                    array.get(2).getAsFloat()
-            );
+    /**
+     * @return whether the model is drawn from a different place than before
+     */
+    private boolean bindAtlasSprites(CustomModel model, @Nullable Set<TextureAtlasSprite> usedSprites) {
+        boolean changed = false;
+        for (int i = 0; i < model.getTextureCount(); i++) {
+            TextureAtlasSprite sprite = CosmeticAtlas.getInstance().findSprite(model.getTextureLocation(i));
+            if (sprite == null) {
+                Individualism.LOGGER.warn("Texture {} of custom model {} is not in the cosmetic atlas, drawing it separately",
+                        model.getTextureLocation(i), model.getModelId());
+            } else if (usedSprites != null) {
+                usedSprites.add(sprite);
+            }
+            changed |= model.setAtlasSprite(i, sprite);
         }
-        return new Vector3f(0, 0, 0);
+        return changed;
     }
 
     public CustomModel getModel(ResourceLocation modelId) {
-        return models.get(modelId);
+        return CosmeticIndex.get().getModel(modelId);
     }
 
     public Map<ResourceLocation, CustomModel> getAllModels() {
-        return models;
+        return CosmeticIndex.get().getModels();
     }
 }
@@ -0,0 +1,198 @@
+package io.fabianbuthere.individualism.client.model;
+
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex.PreparedCosmetic;
+import io.fabianbuthere.individualism.client.renderer.CosmeticBatcher;
+import io.fabianbuthere.individualism.config.ClientConfig;
+import net.minecraft.Util;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Holds the geometry of lazily loaded models. A model is parsed and baked on a background thread the
+ * first time one of its cosmetics is drawn, and unloaded again once the resident models exceed the
+ * memory budget, least recently drawn first. All methods are called on the render thread.
+ */
+public final class LazyModelCache {
+    private static final LazyModelCache INSTANCE = new LazyModelCache();
+
+    // Access ordered, so iteration starts at the least recently drawn model
+    private final LinkedHashMap<ResourceLocation, Entry> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<ResourceLocation, CompletableFuture<CustomModel>> loading = new HashMap<>();
+    private final Set<ResourceLocation> failed = new HashSet<>();
+    private Map<ResourceLocation, Resource> resources = Map.of();
+    // Only kept while models are loaded lazily, it holds on to the tables of every texture it read
+    private TextureAlphaScanner scanner = null;
+
+    private long frame = 0;
+    private long residentBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private LazyModelCache() {
+    }
+
+    public static LazyModelCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Unload everything and serve models from the files of a new reload
+     *
+     * @param scanner classifies the textures of models once they are loaded, or null without lazy loading
+     */
+    void reset(Map<ResourceLocation, Resource> resources, @Nullable TextureAlphaScanner scanner) {
+        unloadAll();
+        // Models still loading are dropped once they complete, they were never uploaded
+        loading.clear();
+        failed.clear();
+        this.resources = resources;
+        this.scanner = scanner;
+    }
+
+    /**
+     * Unload every resident model, they are loaded again the next time they are drawn
+     */
+    void unloadAll() {
+        for (Entry entry : resident.values()) {
+            entry.cosmetic.model().closeVertexBuffers();
+            CosmeticBatcher.remove(entry.cosmetic.model());
+        }
+        resident.clear();
+        residentBytes = 0;
+    }
+
+    /**
+     * Get a lazily loaded cosmetic with its model, starting to load the model if necessary
+     *
+     * @return the loaded cosmetic, or null while its model is not ready yet
+     */
+    public PreparedCosmetic resolve(PreparedCosmetic cosmetic) {
+        ResourceLocation modelId = cosmetic.modelId();
+
+        Entry entry = resident.get(modelId);
+        if (entry != null) {
+            // Once per frame, however many players wear it
+            if (entry.lastDrawnFrame != frame) {
+                hits++;
+                entry.lastDrawnFrame = frame;
+            }
+            return entry.cosmetic;
+        }
+
+        CompletableFuture<CustomModel> future = loading.get(modelId);
+        if (future == null) {
+            startLoading(modelId);
+            return null;
+        }
+        if (!future.isDone()) {
+            return null;
+        }
+
+        loading.remove(modelId);
+        CustomModel model = future.exceptionally(e -> null).join();
+        if (model == null) {
+            failed.add(modelId);
+            return null;
+        }
+
+        CustomModelLoader.getInstance().activate(model);
+        entry = new Entry(cosmetic.withModel(model), model.estimateMemoryBytes());
+        entry.lastDrawnFrame = frame;
+        resident.put(modelId, entry);
+        residentBytes += entry.bytes;
+        return entry.cosmetic;
+    }
+
+    private void startLoading(ResourceLocation modelId) {
+        Resource resource = resources.get(modelId);
+        if (resource == null || scanner == null || failed.contains(modelId)) {
+            return;
+        }
+
+        misses++;
+        TextureAlphaScanner textureScanner = scanner;
+        ModelMetadata metadata = CosmeticIndex.get().getMetadata(modelId);
+        loading.put(modelId, CompletableFuture.supplyAsync(() -> {
+            try {
+                CustomModel model = CustomModelLoader.getInstance().loadOne(modelId, resource);
+                // Not drawn before it is resolved, so it can still be changed here
+                ModelTransparency[] transparency = textureScanner.choose(model, metadata);
+                for (int i = 0; i < transparency.length; i++) {
+                    model.setTransparency(i, transparency[i]);
+                }
+                return model;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, Util.backgroundExecutor()).whenComplete((model, e) -> {
+            if (e != null) {
+                Individualism.LOGGER.error("Failed to load custom model {} from {}", modelId, resource.sourcePackId(), e);
+            }
+        }));
+    }
+
+    /**
+     * Unload the least recently drawn models until the budget is met. Models drawn in the frame
+     * that just ended are kept even over budget, they would only be loaded again right away.
+     */
+    public void endFrame() {
+        Iterator<Entry> iterator = resident.values().iterator();
+        while (residentBytes > ClientConfig.modelMemoryBudgetBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.lastDrawnFrame == frame) {
+                break;
+            }
+            entry.cosmetic.model().closeVertexBuffers();
+            CosmeticBatcher.remove(entry.cosmetic.model());
+            residentBytes -= entry.bytes;
+            evictions++;
+            iterator.remove();
+        }
+        frame++;
+    }
+
+    public int getResidentCount() {
+        return resident.size();
+    }
+
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Share of the models drawn that were already resident, counting each model once per frame it is drawn
+     * in and every load as a single miss. 1 if nothing was drawn yet.
+     */
+    public float getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 1f : (float) hits / lookups;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    private static final class Entry {
+        private final PreparedCosmetic cosmetic;
+        private final long bytes;
+        private long lastDrawnFrame;
+
+        private Entry(PreparedCosmetic cosmetic, long bytes) {
+            this.cosmetic = cosmetic;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package io.fabianbuthere.individualism.client.model;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mojang.math.Axis;
+import io.fabianbuthere.individualism.Individualism;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.ArmorItem;
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads Blockbench models and their metadata token by token, without building a JSON tree first.
+ * Unknown keys and values of an unexpected type are skipped.
+ */
+public final class ModelJsonReader {
+    private static final ResourceLocation DEFAULT_TEXTURE =
+            ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "textures/armor/default.png");
+
+    private ModelJsonReader() {
+    }
+
+    public static CustomModel readModel(ResourceLocation modelId, JsonReader reader) throws IOException {
+        String texture = null;
+        String particleTexture = null;
+        String firstTexture = null;
+        Map<String, String> textures = new HashMap<>();
+        float[] renderOffset = new float[3];
+        List<CustomModel.ModelElement> elements = new ArrayList<>();
+        List<String> faceTextures = new ArrayList<>(); // Texture reference of every face, in the order they were added
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "textures" -> {
+                    if (!expect(reader, JsonToken.BEGIN_OBJECT)) {
+                        break;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String key = reader.nextName();
+                        String value = readString(reader);
+                        if (value == null) {
+                            continue;
+                        }
+                        textures.put(key, value);
+                        if (key.equals("0")) {
+                            texture = value;
+                        } else if (key.equals("particle")) {
+                            particleTexture = value;
+                        }
+                        if (firstTexture == null) {
+                            firstTexture = value;
+                        }
+                    }
+                    reader.endObject();
+                }
+                case "playerTranslation" -> readFloats(reader, renderOffset, 1f);
+                case "elements" -> {
+                    if (!expect(reader, JsonToken.BEGIN_ARRAY)) {
+                        break;
+                    }
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        CustomModel.ModelElement element = readElement(reader, faceTextures);
+                        if (element != null) {
+                            elements.add(element);
+                        }
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Faces without a known reference use the texture the whole model used to be drawn with
+        String texturePath = texture != null ? texture : particleTexture != null ? particleTexture : firstTexture;
+        ResourceLocation defaultTexture = toTextureLocation(texturePath);
+
+        // Elements may come before the textures, so faces are only bound to them once the whole file is read.
+        // Only referenced textures are kept, in the order they are first used.
+        List<ResourceLocation> textureLocations = new ArrayList<>();
+        List<CustomModel.ModelElement> boundElements = new ArrayList<>(elements.size());
+        int faceIndex = 0;
+        for (CustomModel.ModelElement element : elements) {
+            List<CustomModel.ModelFace> faces = new ArrayList<>(element.getFaces().size());
+            for (CustomModel.ModelFace face : element.getFaces()) {
+                String reference = faceTextures.get(faceIndex++);
+                String path = reference == null ? null : textures.get(reference.startsWith("#") ? reference.substring(1) : reference);
+                ResourceLocation location = path != null ? toTextureLocation(path) : defaultTexture;
+
+                int textureIndex = textureLocations.indexOf(location);
+                if (textureIndex < 0) {
+                    textureIndex = textureLocations.size();
+                    textureLocations.add(location);
+                }
+                faces.add(face.withTexture(textureIndex));
+            }
+            boundElements.add(element.withFaces(faces));
+        }
+        if (textureLocations.isEmpty()) {
+            textureLocations.add(defaultTexture);
+        }
+
+        CustomModel model = new CustomModel(modelId, textureLocations, renderOffset);
+        for (CustomModel.ModelElement element : boundElements) {
+            model.addElement(element);
+        }
+        return model;
+    }
+
+    private static ResourceLocation toTextureLocation(String texturePath) {
+        if (texturePath != null) {
+            String[] parts = texturePath.split(":");
+            if (parts.length == 2) {
+                return ResourceLocation.fromNamespaceAndPath(parts[0], "textures/" + parts[1] + ".png");
+            }
+        }
+        return DEFAULT_TEXTURE;
+    }
+
+    /**
+     * @param faceTextures receives the texture reference of each added face, or null where it has none
+     * @return the element, or null if it has no from or to
+     */
+    private static CustomModel.ModelElement readElement(JsonReader reader, List<String> faceTextures) throws IOException {
+        if (!expect(reader, JsonToken.BEGIN_OBJECT)) {
+            return null;
+        }
+
+        String name = "unnamed";
+        float[] from = new float[3];
+        float[] to = new float[3];
+        boolean hasFrom = false;
+        boolean hasTo = false;
+        float[] origin = {8f, 8f, 8f};
+        float angle = 0f;
+        Axis axis = null;
+        float[] faces = null; // u1, v1, u2, v2 per direction, NaN where absent
+        String[] textureReferences = new String[CustomModel.ModelFace.Direction.values().length];
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> {
+                    String value = readString(reader);
+                    if (value != null) {
+                        name = value;
+                    }
+                }
+                case "from" -> hasFrom = readFloats(reader, from, 1f) >= 0;
+                case "to" -> hasTo = readFloats(reader, to, 1f) >= 0;
+                case "rotation" -> {
+                    if (!expect(reader, JsonToken.BEGIN_OBJECT)) {
+                        break;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "origin" -> readFloats(reader, origin, 1f);
+                            case "angle" -> {
+                                if (expect(reader, JsonToken.NUMBER)) {
+                                    angle = (float) reader.nextDouble();
+                                }
+                            }
+                            case "axis" -> {
+                                String value = readString(reader);
+                                if (value != null) {
+                                    switch (value.toLowerCase()) {
+                                        case "x" -> axis = Axis.XP;
+                                        case "y" -> axis = Axis.YP;
+                                        case "z" -> axis = Axis.ZP;
+                                    }
+                                }
+                            }
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                case "faces" -> faces = readFaces(reader, textureReferences);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!hasFrom || !hasTo) {
+            Individualism.LOGGER.error("Skipping model element '{}' without from or to", name);
+            return null;
+        }
+
+        CustomModel.ModelElement element = new CustomModel.ModelElement(name,
+                new Vector3f(from[0], from[1], from[2]), new Vector3f(to[0], to[1], to[2]),
+                new Vector3f(origin[0], origin[1], origin[2]), angle, axis);
+
+        if (faces != null) {
+            // Added in a fixed order so that baking does not depend on the order in the file
+            for (CustomModel.ModelFace.Direction direction : CustomModel.ModelFace.Direction.values()) {
+                int i = direction.ordinal() * 4;
+                if (!Float.isNaN(faces[i])) {
+                    element.addFace(new CustomModel.ModelFace(direction, faces[i], faces[i + 1], faces[i + 2], faces[i + 3]));
+                    faceTextures.add(textureReferences[direction.ordinal()]);
+                }
+            }
+        }
+
+        return element;
+    }
+
+    /**
+     * @param textureReferences receives the texture reference of each direction
+     */
+    private static float[] readFaces(JsonReader reader, String[] textureReferences) throws IOException {
+        if (!expect(reader, JsonToken.BEGIN_OBJECT)) {
+            return null;
+        }
+
+        float[] faces = new float[CustomModel.ModelFace.Direction.values().length * 4];
+        Arrays.fill(faces, Float.NaN);
+        float[] uv = new float[4];
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            CustomModel.ModelFace.Direction direction = switch (reader.nextName()) {
+                case "north" -> CustomModel.ModelFace.Direction.NORTH;
+                case "east" -> CustomModel.ModelFace.Direction.EAST;
+                case "south" -> CustomModel.ModelFace.Direction.SOUTH;
+                case "west" -> CustomModel.ModelFace.Direction.WEST;
+                case "up" -> CustomModel.ModelFace.Direction.UP;
+                case "down" -> CustomModel.ModelFace.Direction.DOWN;
+                default -> null;
+            };
+            if (direction == null || !expect(reader, JsonToken.BEGIN_OBJECT)) {
+                if (direction == null) {
+                    reader.skipValue();
+                }
+                continue;
+            }
+
+            boolean hasUv = false;
+            String textureReference = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "uv" -> hasUv = readFloats(reader, uv, 1f / 16f) >= uv.length;
+                    case "texture" -> textureReference = readString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (hasUv) {
+                System.arraycopy(uv, 0, faces, direction.ordinal() * 4, 4);
+                textureReferences[direction.ordinal()] = textureReference;
+            }
+        }
+        reader.endObject();
+
+        return faces;
+    }
+
+    public static ModelMetadata readMetadata(ResourceLocation modelId, JsonReader reader) throws IOException {
+        String name = "Unnamed";
+        String slot = "_";
+        String item = "minecraft:air";
+        String variant = "";
+        float[] offset = new float[3];
+        boolean hasOffset = false;
+        ModelTransparency transparency = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> name = readString(reader, name);
+                case "slot" -> slot = readString(reader, slot);
+                case "item" -> item = readString(reader, item);
+                case "variant" -> variant = readVariant(reader, variant);
+                case "playerTranslation" -> hasOffset = readFloats(reader, offset, 1f) >= 0;
+                case "renderType" -> {
+                    String value = readString(reader, "auto");
+                    transparency = ModelTransparency.byName(value);
+                    if (transparency == null && !value.equals("auto")) {
+                        Individualism.LOGGER.warn("Unknown renderType '{}' in metadata for {}, picking it from the texture",
+                                value, modelId);
+                    }
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!hasOffset) {
+            throw new JsonSyntaxException("Missing playerTranslation in metadata for " + modelId);
+        }
+
+        ArmorItem.Type armorSlot = switch (slot) {
+            case "head" -> ArmorItem.Type.HELMET;
+            case "chest" -> ArmorItem.Type.CHESTPLATE;
+            case "legs" -> ArmorItem.Type.LEGGINGS;
+            case "feet" -> ArmorItem.Type.BOOTS;
+            default -> ArmorItem.Type.CHESTPLATE;
+        };
+
+        return new ModelMetadata(name, offset[0], offset[1], offset[2], modelId, variant, item, armorSlot, transparency);
+    }
+
+    /**
+     * Skip the next value unless it is of the given type
+     */
+    private static boolean expect(JsonReader reader, JsonToken token) throws IOException {
+        if (reader.peek() == token) {
+            return true;
+        }
+        reader.skipValue();
+        return false;
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        return expect(reader, JsonToken.STRING) ? reader.nextString() : null;
+    }
+
+    private static String readString(JsonReader reader, String defaultValue) throws IOException {
+        String value = readString(reader);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Older files use numbers, where 0 means no variant. Numbers are named by their value, so 1 and 1.0
+     * are the same variant.
+     */
+    private static String readVariant(JsonReader reader, String defaultValue) throws IOException {
+        if (reader.peek() != JsonToken.NUMBER) {
+            return readString(reader, defaultValue);
+        }
+
+        float value = (float) reader.nextDouble();
+        if (value == 0f) {
+            return "";
+        }
+        return value == (int) value ? Integer.toString((int) value) : Float.toString(value);
+    }
+
+    /**
+     * Read a number array into the given array, scaling each value. Missing entries are left as they are
+     * and extra entries are ignored.
+     *
+     * @return the number of entries in the array, or -1 if the value is not an array
+     */
+    private static int readFloats(JsonReader reader, float[] out, float scale) throws IOException {
+        if (!expect(reader, JsonToken.BEGIN_ARRAY)) {
+            return -1;
+        }
+
+        reader.beginArray();
+        int i = 0;
+        while (reader.hasNext()) {
+            if (i < out.length && reader.peek() == JsonToken.NUMBER) {
+                out[i] = (float) reader.nextDouble() * scale;
+            } else {
+                reader.skipValue();
+            }
+            i++;
+        }
+        reader.endArray();
+
+        return i;
+    }
+}
@@ -0,0 +1,99 @@
+package io.fabianbuthere.individualism.client.model;
+
+import io.fabianbuthere.individualism.client.model.CustomModel.ModelElement;
+import io.fabianbuthere.individualism.client.model.CustomModel.ModelFace;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates coarser levels of detail for a model by dropping small elements
+ * and reducing thin elements to their two large faces
+ */
+public final class ModelLodGenerator {
+    public static final int LEVELS = 3;
+
+    // Per level: elements whose largest extent is below this many pixels are dropped
+    private static final float[] MIN_ELEMENT_SIZE = {0f, 1f, 2f};
+    // Per level: elements at most this many pixels thick lose their side faces
+    private static final float[] THIN_THICKNESS = {0f, 1f, 2f};
+    // How much larger the other two extents must be for an element to count as thin
+    private static final float THIN_RATIO = 4f;
+
+    private ModelLodGenerator() {
+    }
+
+    /**
+     * Get the elements of every level, starting with the full model.
+     * A level that would not differ from the finer one is the same list instance.
+     */
+    public static List<List<ModelElement>> generate(List<ModelElement> elements) {
+        List<List<ModelElement>> levels = new ArrayList<>(LEVELS);
+        levels.add(elements);
+
+        for (int level = 1; level < LEVELS; level++) {
+            List<ModelElement> previous = levels.get(level - 1);
+            List<ModelElement> simplified = simplify(previous, MIN_ELEMENT_SIZE[level], THIN_THICKNESS[level]);
+            levels.add(simplified == null ? previous : simplified);
+        }
+
+        return levels;
+    }
+
+    /**
+     * @return the simplified elements, or null if nothing changed
+     */
+    private static List<ModelElement> simplify(List<ModelElement> elements, float minSize, float thinThickness) {
+        List<ModelElement> result = new ArrayList<>(elements.size());
+        boolean changed = false;
+
+        for (ModelElement element : elements) {
+            float dx = Math.abs(element.getTo().x() - element.getFrom().x());
+            float dy = Math.abs(element.getTo().y() - element.getFrom().y());
+            float dz = Math.abs(element.getTo().z() - element.getFrom().z());
+
+            if (Math.max(dx, Math.max(dy, dz)) < minSize) {
+                changed = true;
+                continue;
+            }
+
+            ModelElement collapsed = collapseThin(element, dx, dy, dz, thinThickness);
+            changed |= collapsed != element;
+            result.add(collapsed);
+        }
+
+        // Never simplify a model away entirely
+        if (!changed || result.isEmpty()) {
+            return null;
+        }
+        return result;
+    }
+
+    private static ModelElement collapseThin(ModelElement element, float dx, float dy, float dz, float thinThickness) {
+        Set<ModelFace.Direction> kept;
+        if (isThin(dy, dx, dz, thinThickness)) {
+            kept = EnumSet.of(ModelFace.Direction.UP, ModelFace.Direction.DOWN);
+        } else if (isThin(dx, dy, dz, thinThickness)) {
+            kept = EnumSet.of(ModelFace.Direction.EAST, ModelFace.Direction.WEST);
+        } else if (isThin(dz, dx, dy, thinThickness)) {
+            kept = EnumSet.of(ModelFace.Direction.NORTH, ModelFace.Direction.SOUTH);
+        } else {
+            return element;
+        }
+
+        List<ModelFace> faces = new ArrayList<>();
+        for (ModelFace face : element.getFaces()) {
+            if (kept.contains(face.getDirection())) {
+                faces.add(face);
+            }
+        }
+
+        return faces.size() == element.getFaces().size() ? element : element.withFaces(faces);
+    }
+
+    private static boolean isThin(float thickness, float extentA, float extentB, float thinThickness) {
+        return thickness <= thinThickness && extentA >= thickness * THIN_RATIO && extentB >= thickness * THIN_RATIO;
+    }
+}
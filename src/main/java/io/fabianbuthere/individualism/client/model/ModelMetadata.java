@@ -2,6 +2,7 @@ package io.fabianbuthere.individualism.client.model;
 
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.ArmorItem;
+import org.jetbrains.annotations.Nullable;
 
 public record ModelMetadata(
         String name,
@@ -9,9 +10,10 @@ public record ModelMetadata(
         float offsetY,
         float offsetZ,
         ResourceLocation modelId,
-        float variantKey,
+        String variant, // Empty if the cosmetic is drawn for every stack of the item
         String onItem,
-        ArmorItem.Type armorSlot
+        ArmorItem.Type armorSlot,
+        @Nullable ModelTransparency transparency // Null if it is picked from the texture
 ) {
 
 }
@@ -0,0 +1,349 @@
+package io.fabianbuthere.individualism.client.model;
+
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.CustomModel.ModelElement;
+import io.fabianbuthere.individualism.client.model.CustomModel.ModelFace;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes faces that can never be seen and merges coplanar faces with continuous UVs on the same texture.
+ * Only unrotated elements take part; rotated elements are kept as they are.
+ * <p>
+ * A face is only hidden behind another element if that element is a closed box drawn fully opaque, so
+ * faces behind open boxes and cutout or translucent textures stay. Models are optimized before their
+ * textures are classified and compiled models are cached by the model file alone, so when loading the
+ * transparency is unknown and no faces are hidden, only merged.
+ */
+public final class ModelOptimizer {
+    private static final float EPSILON = 1e-4f;
+
+    private ModelOptimizer() {
+    }
+
+    public static void optimize(CustomModel model) {
+        optimize(model, null);
+    }
+
+    /**
+     * @param transparencies how each texture is drawn, see {@link TextureAlphaScanner#classify}, or null if unknown
+     */
+    public static void optimize(CustomModel model, @Nullable ModelTransparency[] transparencies) {
+        int before = model.getQuadCount();
+
+        List<ModelElement> elements = model.getElements();
+        List<ModelElement> candidates = new ArrayList<>();
+        for (ModelElement element : elements) {
+            if (isAxisAligned(element)) {
+                candidates.add(element);
+            }
+        }
+
+        Set<ModelFace> hidden = findHiddenFaces(candidates, transparencies);
+        Map<String, List<Quad>> planes = new LinkedHashMap<>();
+        for (ModelElement element : candidates) {
+            for (ModelFace face : element.getFaces()) {
+                if (!hidden.contains(face)) {
+                    Quad quad = Quad.of(element, face);
+                    planes.computeIfAbsent(quad.planeKey(), k -> new ArrayList<>()).add(quad);
+                }
+            }
+        }
+
+        Set<ModelFace> merged = new HashSet<>();
+        List<ModelElement> mergedElements = new ArrayList<>();
+        for (List<Quad> quads : planes.values()) {
+            mergeAll(quads);
+            for (Quad quad : quads) {
+                if (quad.sources.size() > 1) {
+                    merged.addAll(quad.sources);
+                    mergedElements.add(quad.toElement());
+                }
+            }
+        }
+
+        if (hidden.isEmpty() && merged.isEmpty()) {
+            return;
+        }
+
+        List<ModelElement> result = new ArrayList<>(elements.size() + mergedElements.size());
+        for (ModelElement element : elements) {
+            List<ModelFace> kept = new ArrayList<>();
+            for (ModelFace face : element.getFaces()) {
+                if (!hidden.contains(face) && !merged.contains(face)) {
+                    kept.add(face);
+                }
+            }
+
+            if (kept.size() == element.getFaces().size()) {
+                result.add(element);
+            } else if (!kept.isEmpty()) {
+                result.add(element.withFaces(kept));
+            }
+        }
+        result.addAll(mergedElements);
+
+        model.replaceElements(result);
+        Individualism.LOGGER.info("Optimized custom model {}: {} -> {} quads", model.getModelId(), before, model.getQuadCount());
+    }
+
+    private static boolean isAxisAligned(ModelElement element) {
+        Vector3f from = element.getFrom();
+        Vector3f to = element.getTo();
+        return !element.isRotated() && from.x() <= to.x() && from.y() <= to.y() && from.z() <= to.z();
+    }
+
+    /**
+     * A face is hidden when a single other closed box with only solid faces covers its whole rectangle
+     * directly in front of it
+     */
+    private static Set<ModelFace> findHiddenFaces(List<ModelElement> elements, @Nullable ModelTransparency[] transparencies) {
+        Set<ModelFace> hidden = new HashSet<>();
+        if (transparencies == null) {
+            // Any box might be see-through
+            return hidden;
+        }
+
+        for (ModelElement element : elements) {
+            for (ModelFace face : element.getFaces()) {
+                Quad quad = Quad.of(element, face);
+                for (ModelElement other : elements) {
+                    if (other == element) {
+                        continue;
+                    }
+                    if (covers(other, quad) && isClosed(other) && isSolid(other, transparencies)) {
+                        hidden.add(face);
+                        break;
+                    }
+                }
+            }
+        }
+
+        return hidden;
+    }
+
+    private static boolean covers(ModelElement occluder, Quad quad) {
+        int axis = normalAxis(quad.direction);
+        int axisA = axisA(quad.direction);
+        int axisB = axisB(quad.direction);
+        Vector3f from = occluder.getFrom();
+        Vector3f to = occluder.getTo();
+
+        float min = from.get(axis);
+        float max = to.get(axis);
+        boolean inFront = isPositive(quad.direction)
+                ? min <= quad.plane + EPSILON && max > quad.plane + EPSILON
+                : min < quad.plane - EPSILON && max >= quad.plane - EPSILON;
+
+        return inFront
+                && from.get(axisA) <= quad.a1 + EPSILON && to.get(axisA) >= quad.a2 - EPSILON
+                && from.get(axisB) <= quad.b1 + EPSILON && to.get(axisB) >= quad.b2 - EPSILON;
+    }
+
+    /**
+     * Whether every ray into the element passes one of its faces: it has volume and a face on every side
+     */
+    private static boolean isClosed(ModelElement element) {
+        Vector3f from = element.getFrom();
+        Vector3f to = element.getTo();
+        if (to.x() - from.x() < EPSILON || to.y() - from.y() < EPSILON || to.z() - from.z() < EPSILON) {
+            return false;
+        }
+
+        Set<ModelFace.Direction> sides = EnumSet.noneOf(ModelFace.Direction.class);
+        for (ModelFace face : element.getFaces()) {
+            sides.add(face.getDirection());
+        }
+        return sides.size() == ModelFace.Direction.values().length;
+    }
+
+    private static boolean isSolid(ModelElement element, ModelTransparency[] transparencies) {
+        for (ModelFace face : element.getFaces()) {
+            if (face.getTexture() >= transparencies.length || transparencies[face.getTexture()] != ModelTransparency.SOLID) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void mergeAll(List<Quad> quads) {
+        boolean mergedAny = true;
+        while (mergedAny) {
+            mergedAny = false;
+            search:
+            for (int i = 0; i < quads.size(); i++) {
+                for (int j = 0; j < quads.size(); j++) {
+                    if (i == j) {
+                        continue;
+                    }
+                    Quad merged = quads.get(i).tryMerge(quads.get(j));
+                    if (merged != null) {
+                        quads.set(i, merged);
+                        quads.remove(j);
+                        mergedAny = true;
+                        break search;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isPositive(ModelFace.Direction direction) {
+        return direction == ModelFace.Direction.SOUTH || direction == ModelFace.Direction.EAST
+                || direction == ModelFace.Direction.UP;
+    }
+
+    /**
+     * Axis the face normal points along (0 = x, 1 = y, 2 = z)
+     */
+    private static int normalAxis(ModelFace.Direction direction) {
+        return switch (direction) {
+            case NORTH, SOUTH -> 2;
+            case EAST, WEST -> 0;
+            case UP, DOWN -> 1;
+        };
+    }
+
+    /**
+     * Axis the u coordinate runs along
+     */
+    private static int axisA(ModelFace.Direction direction) {
+        return switch (direction) {
+            case NORTH, SOUTH, UP, DOWN -> 0;
+            case EAST, WEST -> 2;
+        };
+    }
+
+    /**
+     * Axis the v coordinate runs along
+     */
+    private static int axisB(ModelFace.Direction direction) {
+        return switch (direction) {
+            case NORTH, SOUTH, EAST, WEST -> 1;
+            case UP, DOWN -> 2;
+        };
+    }
+
+    private static boolean equal(float a, float b) {
+        return Math.abs(a - b) < EPSILON;
+    }
+
+    /**
+     * An axis aligned face as a rectangle [a1, a2] x [b1, b2] on its plane, with the texture
+     * coordinate at each edge. The mapping between corners and UVs follows ModelFace#bake.
+     */
+    private static final class Quad {
+        private final ModelFace.Direction direction;
+        private final float plane;
+        private final float a1, a2, b1, b2;
+        private final float uAtA1, uAtA2, vAtB1, vAtB2;
+        private final int texture;
+        private final List<ModelFace> sources;
+
+        private Quad(ModelFace.Direction direction, float plane, float a1, float a2, float b1, float b2,
+                     float uAtA1, float uAtA2, float vAtB1, float vAtB2, int texture, List<ModelFace> sources) {
+            this.direction = direction;
+            this.plane = plane;
+            this.a1 = a1;
+            this.a2 = a2;
+            this.b1 = b1;
+            this.b2 = b2;
+            this.uAtA1 = uAtA1;
+            this.uAtA2 = uAtA2;
+            this.vAtB1 = vAtB1;
+            this.vAtB2 = vAtB2;
+            this.texture = texture;
+            this.sources = sources;
+        }
+
+        private static Quad of(ModelElement element, ModelFace face) {
+            ModelFace.Direction direction = face.getDirection();
+            Vector3f from = element.getFrom();
+            Vector3f to = element.getTo();
+            int axisA = axisA(direction);
+            int axisB = axisB(direction);
+            float plane = isPositive(direction) ? to.get(normalAxis(direction)) : from.get(normalAxis(direction));
+
+            // East faces run their u backwards, all side faces have v = v1 at the top edge
+            float uAtA1 = direction == ModelFace.Direction.EAST ? face.getU2() : face.getU1();
+            float uAtA2 = direction == ModelFace.Direction.EAST ? face.getU1() : face.getU2();
+            boolean side = direction != ModelFace.Direction.UP && direction != ModelFace.Direction.DOWN;
+            float vAtB1 = side ? face.getV2() : face.getV1();
+            float vAtB2 = side ? face.getV1() : face.getV2();
+
+            return new Quad(direction, plane, from.get(axisA), to.get(axisA), from.get(axisB), to.get(axisB),
+                    uAtA1, uAtA2, vAtB1, vAtB2, face.getTexture(), List.of(face));
+        }
+
+        /**
+         * Quads can only merge with others on the same plane that use the same texture
+         */
+        private String planeKey() {
+            return direction + "@" + plane + "#" + texture;
+        }
+
+        /**
+         * @return the union of both quads if they share a full edge and their UVs continue
+         * across it with the same scale, otherwise null
+         */
+        private Quad tryMerge(Quad other) {
+            if (a2 - a1 < EPSILON || b2 - b1 < EPSILON || other.a2 - other.a1 < EPSILON || other.b2 - other.b1 < EPSILON) {
+                return null;
+            }
+
+            // other continues this quad along a
+            if (equal(b1, other.b1) && equal(b2, other.b2) && equal(vAtB1, other.vAtB1) && equal(vAtB2, other.vAtB2)
+                    && equal(a2, other.a1) && equal(uAtA2, other.uAtA1)
+                    && equal((uAtA2 - uAtA1) / (a2 - a1), (other.uAtA2 - other.uAtA1) / (other.a2 - other.a1))) {
+                return new Quad(direction, plane, a1, other.a2, b1, b2, uAtA1, other.uAtA2, vAtB1, vAtB2, texture, union(other));
+            }
+
+            // other continues this quad along b
+            if (equal(a1, other.a1) && equal(a2, other.a2) && equal(uAtA1, other.uAtA1) && equal(uAtA2, other.uAtA2)
+                    && equal(b2, other.b1) && equal(vAtB2, other.vAtB1)
+                    && equal((vAtB2 - vAtB1) / (b2 - b1), (other.vAtB2 - other.vAtB1) / (other.b2 - other.b1))) {
+                return new Quad(direction, plane, a1, a2, b1, other.b2, uAtA1, uAtA2, vAtB1, other.vAtB2, texture, union(other));
+            }
+
+            return null;
+        }
+
+        private List<ModelFace> union(Quad other) {
+            List<ModelFace> result = new ArrayList<>(sources);
+            result.addAll(other.sources);
+            return result;
+        }
+
+        /**
+         * A flat element holding only this quad as its single face
+         */
+        private ModelElement toElement() {
+            Vector3f from = new Vector3f();
+            Vector3f to = new Vector3f();
+            from.setComponent(normalAxis(direction), plane);
+            to.setComponent(normalAxis(direction), plane);
+            from.setComponent(axisA(direction), a1);
+            to.setComponent(axisA(direction), a2);
+            from.setComponent(axisB(direction), b1);
+            to.setComponent(axisB(direction), b2);
+
+            boolean side = direction != ModelFace.Direction.UP && direction != ModelFace.Direction.DOWN;
+            float u1 = direction == ModelFace.Direction.EAST ? uAtA2 : uAtA1;
+            float u2 = direction == ModelFace.Direction.EAST ? uAtA1 : uAtA2;
+            float v1 = side ? vAtB2 : vAtB1;
+            float v2 = side ? vAtB1 : vAtB2;
+
+            ModelElement element = new ModelElement("merged", from, to, new Vector3f(8, 8, 8), 0, null);
+            element.addFace(new ModelFace(direction, u1, v1, u2, v2, texture));
+            return element;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package io.fabianbuthere.individualism.client.model;
+
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * How much of a texture shows through where a model's faces use it, from cheapest to most expensive to draw.
+ * Model parts are drawn in this order, so translucent ones blend over everything else.
+ */
+public enum ModelTransparency {
+    /**
+     * Every pixel the faces show is fully opaque
+     */
+    SOLID,
+    /**
+     * Some pixels are fully transparent, the rest fully opaque
+     */
+    CUTOUT,
+    /**
+     * Some pixels are partially transparent and need blending
+     */
+    TRANSLUCENT;
+
+    public RenderType getRenderType(ResourceLocation textureLocation) {
+        return switch (this) {
+            case SOLID -> RenderType.entitySolid(textureLocation);
+            case CUTOUT -> RenderType.entityCutout(textureLocation);
+            case TRANSLUCENT -> RenderType.entityTranslucentCull(textureLocation);
+        };
+    }
+
+    /**
+     * Parse the renderType of metadata files
+     *
+     * @return the transparency, or null for "auto" and unknown names
+     */
+    @Nullable
+    public static ModelTransparency byName(String name) {
+        return switch (name) {
+            case "solid" -> SOLID;
+            case "cutout" -> CUTOUT;
+            case "translucent" -> TRANSLUCENT;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,303 @@
+package io.fabianbuthere.individualism.client.model;
+
+import com.google.gson.stream.JsonReader;
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.profiling.ReloadPhaseEvent;
+import io.fabianbuthere.individualism.config.ClientConfig;
+import net.minecraft.resources.FileToIdConverter;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads a directory of JSON files where every file is read and prepared in its own task on the
+ * background executor (a fork-join pool). Loaders are driven by {@link CosmeticReloadListener},
+ * which joins their results.
+ * <p>
+ * Prepared files are kept in a {@link CompiledCache}, so files whose bytes did not change since
+ * the last launch, or since the mod jar was built, are decoded from there instead of being parsed
+ * again. Within a session, files whose bytes did not change since the last reload keep their
+ * prepared instance, so whatever was built for them can be recognized by identity and kept.
+ *
+ * @param <T> the prepared form of a single file
+ */
+public abstract class ParallelJsonLoader<T> {
+    private final FileToIdConverter fileToIdConverter;
+    private final CompiledCache cache;
+    // Written on the game thread after each reload, read by the next reload's background tasks
+    private volatile Map<ResourceLocation, Loaded<T>> loaded = Map.of();
+
+    protected ParallelJsonLoader(String directory) {
+        this.fileToIdConverter = FileToIdConverter.json(directory);
+        this.cache = new CompiledCache(directory.replace('/', '_'));
+    }
+
+    /**
+     * Prepare every file in the directory on the background executor
+     */
+    public final CompletableFuture<Prepared<T>> load(ResourceManager resourceManager, Executor backgroundExecutor) {
+        return load(resourceManager, backgroundExecutor, ClientConfig.compiledModelCache, true, loaded);
+    }
+
+    /**
+     * Parse and prepare every file in the directory without touching the compiled caches or reusing the
+     * files of the last reload, e.g. to measure a cold load of a resource manager other than the game's
+     */
+    public final CompletableFuture<Prepared<T>> loadDetached(ResourceManager resourceManager, Executor backgroundExecutor) {
+        return load(resourceManager, backgroundExecutor, false, false, Map.of());
+    }
+
+    private CompletableFuture<Prepared<T>> load(ResourceManager resourceManager, Executor backgroundExecutor,
+                                                boolean useCache, boolean usePrecompiled,
+                                                Map<ResourceLocation, Loaded<T>> previous) {
+        return CompletableFuture.supplyAsync(() -> {
+                    ReloadPhaseEvent listing = ReloadPhaseEvent.start(cache.getName(), "list");
+                    Map<ResourceLocation, Resource> resources = fileToIdConverter.listMatchingResources(resourceManager);
+                    listing.finish(resources.size());
+                    return resources;
+                }, backgroundExecutor)
+                .thenCompose(resources -> {
+                    ReloadPhaseEvent preparing = ReloadPhaseEvent.start(cache.getName(), "prepare");
+                    CompiledCache.Session session = cache.begin(useCache, usePrecompiled);
+                    ReadStats stats = new ReadStats();
+                    return prepareAll(resources, previous, session, stats, backgroundExecutor).thenApply(prepared -> {
+                        session.finish();
+                        stats.log(cache, previous, prepared);
+                        preparing.finish(prepared.size());
+                        return new Prepared<>(prepared);
+                    });
+                });
+    }
+
+    /**
+     * List the files in the directory by id without reading them
+     */
+    public final CompletableFuture<Map<ResourceLocation, Resource>> list(ResourceManager resourceManager,
+                                                                        Executor backgroundExecutor) {
+        return CompletableFuture.supplyAsync(() -> {
+            Map<ResourceLocation, Resource> resources = new HashMap<>();
+            for (Map.Entry<ResourceLocation, Resource> entry : fileToIdConverter.listMatchingResources(resourceManager).entrySet()) {
+                resources.put(fileToIdConverter.fileToId(entry.getKey()), entry.getValue());
+            }
+            return resources;
+        }, backgroundExecutor);
+    }
+
+    /**
+     * Parse and prepare a single file outside of a reload, bypassing all caches
+     */
+    public final T loadOne(ResourceLocation id, Resource resource) throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(resource.open(), StandardCharsets.UTF_8))) {
+            return prepare(id, read(id, reader));
+        }
+    }
+
+    /**
+     * Remember the files of a reload once it is published, so the next reload can reuse them.
+     * Called on the game thread.
+     */
+    public final void commit(Prepared<T> prepared) {
+        loaded = prepared.entries;
+    }
+
+    private CompletableFuture<Map<ResourceLocation, Loaded<T>>> prepareAll(Map<ResourceLocation, Resource> resources,
+                                                                   Map<ResourceLocation, Loaded<T>> previous,
+                                                                   CompiledCache.Session session, ReadStats stats,
+                                                                   Executor executor) {
+        List<ResourceLocation> ids = new ArrayList<>(resources.size());
+        List<CompletableFuture<Loaded<T>>> tasks = new ArrayList<>(resources.size());
+
+        for (Map.Entry<ResourceLocation, Resource> entry : resources.entrySet()) {
+            ResourceLocation file = entry.getKey();
+            ResourceLocation id = fileToIdConverter.fileToId(file);
+            Resource resource = entry.getValue();
+
+            ids.add(id);
+            tasks.add(CompletableFuture.supplyAsync(() -> {
+                try (InputStream in = resource.open()) {
+                    return prepareCached(id, in.readAllBytes(), previous.get(id), session, stats);
+                } catch (Exception e) {
+                    Individualism.LOGGER.error("Failed to load {} from {}", file, resource.sourcePackId(), e);
+                    return null;
+                }
+            }, executor));
+        }
+
+        return CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            Map<ResourceLocation, Loaded<T>> prepared = new HashMap<>();
+            for (int i = 0; i < tasks.size(); i++) {
+                Loaded<T> value = tasks.get(i).join();
+                if (value != null) {
+                    prepared.put(ids.get(i), value);
+                }
+            }
+            return prepared;
+        });
+    }
+
+    private Loaded<T> prepareCached(ResourceLocation id, byte[] bytes, Loaded<T> previous, CompiledCache.Session session,
+                                    ReadStats stats) throws IOException {
+        long hash = CompiledCache.hash(bytes);
+
+        if (previous != null && previous.hash() == hash) {
+            stats.unchanged.increment();
+            if (!session.retain(hash)) {
+                session.store(hash, encode(previous.value()));
+            }
+            return previous;
+        }
+
+        ByteBuffer compiled = session.lookup(hash);
+        if (compiled != null) {
+            try {
+                return new Loaded<>(hash, decode(id, compiled));
+            } catch (RuntimeException e) {
+                Individualism.LOGGER.warn("Discarding corrupt compiled cache entry for {}", id, e);
+            }
+        }
+
+        long startTime = System.nanoTime();
+        long startAllocated = allocatedBytes();
+        T parsed;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            parsed = read(id, reader);
+        }
+        stats.add(id, bytes.length, allocatedBytes() - startAllocated, System.nanoTime() - startTime);
+
+        T value = prepare(id, parsed);
+        session.store(hash, encode(value));
+        return new Loaded<>(hash, value);
+    }
+
+    private byte[] encode(T value) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        encode(value, new DataOutputStream(payload));
+        return payload.toByteArray();
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or 0 if the JVM does not track it
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean allocationTracking
+                && allocationTracking.isThreadAllocatedMemorySupported()) {
+            return allocationTracking.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    /**
+     * Parse a single file. Called concurrently from background threads.
+     */
+    protected abstract T read(ResourceLocation id, JsonReader reader) throws IOException;
+
+    /**
+     * Process a freshly parsed file before it is cached. Called concurrently from background threads.
+     */
+    protected T prepare(ResourceLocation id, T parsed) {
+        return parsed;
+    }
+
+    /**
+     * Write a prepared file to the compiled cache
+     */
+    protected abstract void encode(T value, DataOutput out) throws IOException;
+
+    /**
+     * Read a prepared file back from the compiled cache. Called concurrently from background threads.
+     */
+    protected abstract T decode(ResourceLocation id, ByteBuffer in);
+
+    /**
+     * A prepared file together with the hash of the bytes it was prepared from
+     */
+    private record Loaded<T>(long hash, T value) {
+    }
+
+    /**
+     * The prepared files of one reload. Files that did not change since the last reload are the
+     * same instance as before.
+     */
+    public static final class Prepared<T> {
+        private static final Prepared<?> EMPTY = new Prepared<>(Map.of());
+
+        private final Map<ResourceLocation, Loaded<T>> entries;
+        private final Map<ResourceLocation, T> values;
+
+        private Prepared(Map<ResourceLocation, Loaded<T>> entries) {
+            this.entries = entries;
+            Map<ResourceLocation, T> values = new HashMap<>(entries.size());
+            for (Map.Entry<ResourceLocation, Loaded<T>> entry : entries.entrySet()) {
+                values.put(entry.getKey(), entry.getValue().value());
+            }
+            this.values = Collections.unmodifiableMap(values);
+        }
+
+        @SuppressWarnings("unchecked")
+        public static <T> Prepared<T> empty() {
+            return (Prepared<T>) EMPTY;
+        }
+
+        public Map<ResourceLocation, T> values() {
+            return values;
+        }
+    }
+
+    /**
+     * Bytes read, bytes allocated and time spent parsing the files that had to be parsed,
+     * and how many files were carried over from the previous reload
+     */
+    private static final class ReadStats {
+        private final LongAdder unchanged = new LongAdder();
+        private final LongAdder files = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private void add(ResourceLocation id, long fileBytes, long fileAllocated, long fileNanos) {
+            Individualism.LOGGER.debug("Parsed {}: {} bytes read, {} bytes allocated, {} us",
+                    id, fileBytes, fileAllocated, fileNanos / 1000);
+            files.increment();
+            bytes.add(fileBytes);
+            allocated.add(fileAllocated);
+            nanos.add(fileNanos);
+        }
+
+        private void log(CompiledCache cache, Map<ResourceLocation, ?> previous, Map<ResourceLocation, ?> current) {
+            int removed = 0;
+            for (ResourceLocation id : previous.keySet()) {
+                if (!current.containsKey(id)) {
+                    removed++;
+                }
+            }
+            Individualism.LOGGER.info("Reloaded {} files for {}: {} unchanged, {} added or changed, {} removed",
+                    current.size(), cache.getName(), unchanged.sum(), current.size() - unchanged.sum(), removed);
+
+            if (files.sum() > 0) {
+                Individualism.LOGGER.info("Parsed {} files for {}: {} bytes read, {} bytes allocated, {} ms",
+                        files.sum(), cache.getName(), bytes.sum(), allocated.sum(), nanos.sum() / 1_000_000);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package io.fabianbuthere.individualism.client.model;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import io.fabianbuthere.individualism.Individualism;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the cheapest transparency each texture of a model can be drawn with by looking at the alpha of
+ * the texture pixels its faces actually show. Each texture is read once per reload and summed up into
+ * tables of its transparent and translucent pixels, so every face is checked in constant time. Safe to
+ * use from several threads at once.
+ */
+public final class TextureAlphaScanner {
+    // The entity cutout shader discards pixels below an alpha of 0.1
+    private static final int CUTOUT_ALPHA = 26;
+    // Baked UVs are divided by 16, so face edges may land just next to a pixel boundary
+    private static final float EPSILON = 1e-4f;
+    private static final int QUAD_FLOATS = 4 * CustomModel.VERTEX_STRIDE;
+
+    private final ResourceManager resourceManager;
+    private final Map<ResourceLocation, Optional<AlphaTable>> tables = new ConcurrentHashMap<>();
+
+    public TextureAlphaScanner(ResourceManager resourceManager) {
+        this.resourceManager = resourceManager;
+    }
+
+    /**
+     * Get the transparency set in the metadata for every texture, or classify them if there is none
+     */
+    public ModelTransparency[] choose(CustomModel model, @Nullable ModelMetadata metadata) {
+        if (metadata != null && metadata.transparency() != null) {
+            ModelTransparency[] result = new ModelTransparency[model.getTextureCount()];
+            Arrays.fill(result, metadata.transparency());
+            return result;
+        }
+        return classify(model);
+    }
+
+    /**
+     * Classify each texture of a baked model by the pixels its faces show. Textures that cannot be read
+     * are translucent, which is always drawn correctly.
+     */
+    public ModelTransparency[] classify(CustomModel model) {
+        ModelTransparency[] result = new ModelTransparency[model.getTextureCount()];
+        // Coarser levels only drop faces, so the full model shows every pixel any level does
+        float[] vertices = model.getVertices(0);
+        int[] starts = model.getTextureStarts(0);
+        for (int texture = 0; texture < result.length; texture++) {
+            AlphaTable table = tables.computeIfAbsent(model.getTextureLocation(texture), this::read).orElse(null);
+            result[texture] = table == null ? ModelTransparency.TRANSLUCENT
+                    : classify(table, vertices, starts[texture] * CustomModel.VERTEX_STRIDE,
+                    starts[texture + 1] * CustomModel.VERTEX_STRIDE);
+        }
+        return result;
+    }
+
+    private static ModelTransparency classify(AlphaTable table, float[] vertices, int start, int end) {
+        ModelTransparency result = ModelTransparency.SOLID;
+        for (int quad = start; quad + QUAD_FLOATS <= end; quad += QUAD_FLOATS) {
+            float minU = Float.POSITIVE_INFINITY;
+            float minV = Float.POSITIVE_INFINITY;
+            float maxU = Float.NEGATIVE_INFINITY;
+            float maxV = Float.NEGATIVE_INFINITY;
+            for (int i = quad; i < quad + QUAD_FLOATS; i += CustomModel.VERTEX_STRIDE) {
+                minU = Math.min(minU, vertices[i + 3]);
+                minV = Math.min(minV, vertices[i + 4]);
+                maxU = Math.max(maxU, vertices[i + 3]);
+                maxV = Math.max(maxV, vertices[i + 4]);
+            }
+
+            ModelTransparency face = table.classify(minU, minV, maxU, maxV);
+            if (face.compareTo(result) > 0) {
+                result = face;
+                if (result == ModelTransparency.TRANSLUCENT) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Optional<AlphaTable> read(ResourceLocation textureLocation) {
+        Optional<Resource> resource = resourceManager.getResource(textureLocation);
+        if (resource.isEmpty()) {
+            Individualism.LOGGER.debug("Texture {} does not exist, drawing its models as translucent", textureLocation);
+            return Optional.empty();
+        }
+
+        try (InputStream in = resource.get().open(); NativeImage image = NativeImage.read(in)) {
+            return Optional.of(AlphaTable.of(image));
+        } catch (IOException | RuntimeException e) {
+            Individualism.LOGGER.warn("Failed to read texture {} to classify its models", textureLocation, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Summed area tables of the transparent and translucent pixels of a texture, with an extra
+     * leading row and column of zeros
+     */
+    private static final class AlphaTable {
+        private final int width;
+        private final int height;
+        private final int[] transparent;
+        private final int[] translucent;
+
+        private AlphaTable(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.transparent = new int[(width + 1) * (height + 1)];
+            this.translucent = new int[(width + 1) * (height + 1)];
+        }
+
+        private static AlphaTable of(NativeImage image) {
+            AlphaTable table = new AlphaTable(image.getWidth(), image.getHeight());
+            int stride = table.width + 1;
+            for (int y = 0; y < table.height; y++) {
+                int transparentRow = 0;
+                int translucentRow = 0;
+                for (int x = 0; x < table.width; x++) {
+                    int alpha = NativeImage.getA(image.getPixelRGBA(x, y));
+                    if (alpha < CUTOUT_ALPHA) {
+                        transparentRow++;
+                    } else if (alpha < 255) {
+                        translucentRow++;
+                    }
+                    int index = (y + 1) * stride + x + 1;
+                    table.transparent[index] = table.transparent[index - stride] + transparentRow;
+                    table.translucent[index] = table.translucent[index - stride] + translucentRow;
+                }
+            }
+            return table;
+        }
+
+        private ModelTransparency classify(float minU, float minV, float maxU, float maxV) {
+            int x1 = Math.max(0, Math.min(width - 1, (int) Math.floor(minU * width + EPSILON)));
+            int y1 = Math.max(0, Math.min(height - 1, (int) Math.floor(minV * height + EPSILON)));
+            // At least the one pixel a degenerate face samples
+            int x2 = Math.max(x1 + 1, Math.min(width, (int) Math.ceil(maxU * width - EPSILON)));
+            int y2 = Math.max(y1 + 1, Math.min(height, (int) Math.ceil(maxV * height - EPSILON)));
+
+            if (sum(translucent, x1, y1, x2, y2) > 0) {
+                return ModelTransparency.TRANSLUCENT;
+            }
+            return sum(transparent, x1, y1, x2, y2) > 0 ? ModelTransparency.CUTOUT : ModelTransparency.SOLID;
+        }
+
+        private int sum(int[] values, int x1, int y1, int x2, int y2) {
+            int stride = width + 1;
+            return values[y2 * stride + x2] - values[y1 * stride + x2] - values[y2 * stride + x1] + values[y1 * stride + x1];
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package io.fabianbuthere.individualism.client.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The cosmetic renderer's counters of one frame, committed once the frame's cosmetics have been flushed
+ */
+@Name("individualism.CosmeticFrame")
+@Label("Cosmetic Frame")
+@Category({"Individualism", "Rendering"})
+@Description("Cosmetics considered, drawn and culled in one frame and the time spent on them")
+@StackTrace(false)
+public class CosmeticFrameEvent extends Event {
+    @Label("Considered")
+    public int considered;
+
+    @Label("Drawn")
+    public int drawn;
+
+    @Label("Culled")
+    public int culled;
+
+    @Label("Vertices")
+    public long vertices;
+
+    @Label("Render Type Switches")
+    public int renderTypeSwitches;
+
+    @Label("Degraded")
+    @Description("Cosmetics drawn at a coarser level of detail to stay within the frame budget")
+    public int degraded;
+
+    @Label("Skipped")
+    @Description("Cosmetics not drawn to stay within the frame budget")
+    public int skipped;
+
+    @Label("Player Render Time")
+    @Description("Time spent in the player render hook, only measured with detailed stats enabled")
+    @Timespan(Timespan.NANOSECONDS)
+    public long playerNanos;
+
+    @Label("Flush Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long flushNanos;
+}
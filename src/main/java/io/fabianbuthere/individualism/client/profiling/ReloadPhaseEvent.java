@@ -0,0 +1,46 @@
+package io.fabianbuthere.individualism.client.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of loading cosmetics during a resource reload. Phases of different loaders overlap,
+ * they run side by side on the background executor.
+ */
+@Name("individualism.ReloadPhase")
+@Label("Cosmetic Reload Phase")
+@Category({"Individualism", "Reload"})
+@Description("Listing, preparing, indexing or applying cosmetic files during a resource reload")
+@StackTrace(false)
+public class ReloadPhaseEvent extends Event {
+    @Label("Loader")
+    String loader;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Files")
+    int files;
+
+    public static ReloadPhaseEvent start(String loader, String phase) {
+        ReloadPhaseEvent event = new ReloadPhaseEvent();
+        event.loader = loader;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Record the phase if a recording is running. May be called on another thread than {@link #start}.
+     */
+    public void finish(int files) {
+        if (shouldCommit()) {
+            this.files = files;
+            commit();
+        }
+    }
+}
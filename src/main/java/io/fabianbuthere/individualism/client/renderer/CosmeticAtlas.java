@@ -0,0 +1,94 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import io.fabianbuthere.individualism.Individualism;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.MissingTextureAtlasSprite;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.resources.TextureAtlasHolder;
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+
+/**
+ * Stitches all cosmetic textures (textures/armor in any namespace, see atlases/cosmetics.json)
+ * into a single atlas, so that cosmetics with different textures share one render type
+ */
+public class CosmeticAtlas extends TextureAtlasHolder {
+    public static final ResourceLocation ATLAS_LOCATION =
+            ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "textures/atlas/cosmetics.png");
+    private static final ResourceLocation ATLAS_INFO_LOCATION =
+            ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "cosmetics");
+
+    private static CosmeticAtlas instance;
+
+    private int width = 0;
+    private int height = 0;
+    private float utilization = 0f;
+
+    private CosmeticAtlas() {
+        super(Minecraft.getInstance().getTextureManager(), ATLAS_LOCATION, ATLAS_INFO_LOCATION);
+    }
+
+    public static CosmeticAtlas getInstance() {
+        if (instance == null) {
+            instance = new CosmeticAtlas();
+        }
+        return instance;
+    }
+
+    /**
+     * Find the stitched sprite of a texture location like "ns:textures/armor/name.png"
+     *
+     * @return the sprite, or null if the texture is not part of the atlas
+     */
+    @Nullable
+    public TextureAtlasSprite findSprite(ResourceLocation textureLocation) {
+        String path = textureLocation.getPath();
+        if (!path.startsWith("textures/") || !path.endsWith(".png")) {
+            return null;
+        }
+
+        ResourceLocation spriteId = ResourceLocation.fromNamespaceAndPath(textureLocation.getNamespace(),
+                path.substring("textures/".length(), path.length() - ".png".length()));
+        TextureAtlasSprite sprite = getSprite(spriteId);
+        return sprite.contents().name().equals(MissingTextureAtlasSprite.getLocation()) ? null : sprite;
+    }
+
+    /**
+     * Recalculate size and utilization from the sprites used by the loaded cosmetics
+     */
+    public void updateStats(Collection<TextureAtlasSprite> usedSprites) {
+        width = 0;
+        height = 0;
+        utilization = 0f;
+        if (usedSprites.isEmpty()) {
+            return;
+        }
+
+        long usedArea = 0;
+        for (TextureAtlasSprite sprite : usedSprites) {
+            usedArea += (long) sprite.contents().width() * sprite.contents().height();
+            if (width == 0) {
+                width = Math.round(sprite.contents().width() / (sprite.getU1() - sprite.getU0()));
+                height = Math.round(sprite.contents().height() / (sprite.getV1() - sprite.getV0()));
+            }
+        }
+        utilization = (float) usedArea / ((long) width * height);
+
+        Individualism.LOGGER.info("Cosmetic atlas is {}x{} with {} cosmetic textures ({}% used)",
+                width, height, usedSprites.size(), Math.round(utilization * 100));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public float getUtilization() {
+        return utilization;
+    }
+}
@@ -0,0 +1,286 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexBuffer;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import io.fabianbuthere.individualism.client.model.CustomModel;
+import io.fabianbuthere.individualism.client.model.CustomModelLoader;
+import io.fabianbuthere.individualism.client.model.LazyModelCache;
+import io.fabianbuthere.individualism.client.model.ModelTransparency;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.culling.Frustum;
+import net.minecraft.client.renderer.texture.OverlayTexture;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraftforge.client.event.RenderLevelStageEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Collects cosmetic instances of all players during the entity pass and draws them in one
+ * flush per frame, grouped by model and level of detail. Each model part's render state and buffer are set up
+ * once for all players wearing it instead of once per player.
+ */
+public class CosmeticBatcher {
+    private static final Comparator<DrawCall> BY_RENDER_TYPE =
+            Comparator.<DrawCall, ModelTransparency>comparing(call -> call.part().getTransparency())
+                    .thenComparing(call -> call.part().getRenderTextureLocation());
+
+    private static final Map<CustomModel, InstanceList[]> instancesByModel = new IdentityHashMap<>();
+    private static final List<InstanceList> activeLists = new ArrayList<>();
+    private static final List<DrawCall> drawCalls = new ArrayList<>();
+    private static boolean collecting = false;
+    private static Frustum frustum = null;
+
+    /**
+     * Whether players are currently being drawn as part of the level. Outside of it
+     * (e.g. the inventory preview) cosmetics have to be drawn immediately.
+     */
+    public static boolean isCollecting() {
+        return collecting;
+    }
+
+    /**
+     * The camera frustum of the level currently being drawn, or null outside of it
+     */
+    public static Frustum getFrustum() {
+        return frustum;
+    }
+
+    /**
+     * Drop all pooled instance lists, which hold on to the models of the previous reload
+     */
+    public static void clear() {
+        instancesByModel.clear();
+        activeLists.clear();
+    }
+
+    /**
+     * Drop the pooled instance lists of a single unloaded model
+     */
+    public static void remove(CustomModel model) {
+        instancesByModel.remove(model);
+    }
+
+    /**
+     * Collect a cosmetic for this frame's flush. With a frame budget it may still be degraded or skipped.
+     *
+     * @param distanceSqr squared distance of the wearer to the camera, closer cosmetics are drawn first
+     */
+    public static void record(CustomModel model, int lod, PoseStack.Pose pose, int packedLight,
+                              UUID playerId, double distanceSqr) {
+        if (CosmeticScheduler.isEnabled()) {
+            CosmeticScheduler.add(model, lod, pose, packedLight, playerId, distanceSqr);
+        } else {
+            add(model, lod, pose.pose(), pose.normal(), packedLight);
+        }
+    }
+
+    private static void add(CustomModel model, int lod, Matrix4f pose, Matrix3f normal, int packedLight) {
+        InstanceList[] lists = instancesByModel.computeIfAbsent(model, m -> new InstanceList[m.getLodCount()]);
+        InstanceList list = lists[lod];
+        if (list == null) {
+            list = lists[lod] = new InstanceList(model, lod);
+        }
+        if (list.count == 0) {
+            activeLists.add(list);
+        }
+        list.add(pose, normal, packedLight);
+    }
+
+    @SubscribeEvent
+    public static void onRenderLevelStage(RenderLevelStageEvent event) {
+        // Entities are drawn between these two stages
+        if (event.getStage() == RenderLevelStageEvent.Stage.AFTER_CUTOUT_BLOCKS) {
+            CustomModelLoader.getInstance().updateRenderMode();
+            collecting = true;
+            frustum = event.getFrustum();
+        } else if (event.getStage() == RenderLevelStageEvent.Stage.AFTER_ENTITIES) {
+            collecting = false;
+            frustum = null;
+            ProfilerFiller profiler = Minecraft.getInstance().getProfiler();
+            profiler.push("individualism_flush");
+            CosmeticScheduler.schedule(CosmeticBatcher::add);
+            if (CosmeticRenderStats.isTiming()) {
+                long start = System.nanoTime();
+                long vertices = countVertices();
+                flush();
+                long nanos = System.nanoTime() - start;
+                CosmeticRenderStats.addFlushNanos(nanos);
+                CosmeticScheduler.measure(nanos, vertices);
+            } else {
+                flush();
+            }
+            profiler.pop();
+            CosmeticRenderStats.endFrame();
+            // Only after the flush, evicted models must not be drawn anymore
+            LazyModelCache.getInstance().endFrame();
+        }
+    }
+
+    private static long countVertices() {
+        long vertices = 0;
+        for (InstanceList list : activeLists) {
+            vertices += (long) list.model.getVertexCount(list.lod) * list.count;
+        }
+        return vertices;
+    }
+
+    private static void flush() {
+        if (activeLists.isEmpty()) {
+            return;
+        }
+
+        // Adjacent parts with the same transparency and render texture share a render type and therefore
+        // a buffer, and translucent parts come last to blend over the others
+        for (InstanceList list : activeLists) {
+            list.addDrawCalls(drawCalls);
+        }
+        drawCalls.sort(BY_RENDER_TYPE);
+
+        if (VertexBufferRenderer.isActive()) {
+            flushVertexBuffers();
+        } else {
+            flushImmediate();
+        }
+
+        for (InstanceList list : activeLists) {
+            list.count = 0;
+        }
+        activeLists.clear();
+        drawCalls.clear();
+    }
+
+    private static void flushVertexBuffers() {
+        MultiBufferSource.BufferSource bufferSource = Minecraft.getInstance().renderBuffers().bufferSource();
+
+        for (DrawCall call : drawCalls) {
+            InstanceList list = call.list();
+            RenderType renderType = call.part().getRenderType();
+            VertexBuffer vertexBuffer = call.part().getVertexBuffer(list.lod);
+
+            if (vertexBuffer == null) {
+                // Not uploaded (e.g. render mode changed since the last reload)
+                CosmeticRenderStats.countRenderTypeSwitch();
+                list.emit(bufferSource.getBuffer(renderType), call.part());
+                bufferSource.endBatch(renderType);
+                continue;
+            }
+
+            // Every part sets up and clears its render state
+            CosmeticRenderStats.countRenderTypeSwitch();
+            VertexBufferRenderer.begin(vertexBuffer, renderType);
+            for (int i = 0; i < list.count; i++) {
+                VertexBufferRenderer.drawInstance(vertexBuffer, list.poses[i], list.normals[i],
+                        list.lights[i], OverlayTexture.NO_OVERLAY);
+            }
+            VertexBufferRenderer.end(renderType);
+        }
+    }
+
+    private static void flushImmediate() {
+        MultiBufferSource.BufferSource bufferSource = Minecraft.getInstance().renderBuffers().bufferSource();
+
+        RenderType currentType = null;
+        VertexConsumer consumer = null;
+        for (DrawCall call : drawCalls) {
+            RenderType renderType = call.part().getRenderType();
+            if (renderType != currentType) {
+                if (currentType != null) {
+                    bufferSource.endBatch(currentType);
+                }
+                currentType = renderType;
+                consumer = bufferSource.getBuffer(renderType);
+                CosmeticRenderStats.countRenderTypeSwitch();
+            }
+            call.list().emit(consumer, call.part());
+        }
+
+        if (currentType != null) {
+            bufferSource.endBatch(currentType);
+        }
+    }
+
+    /**
+     * Pooled per-model instance data, reused across frames
+     */
+    private static class InstanceList {
+        private final CustomModel model;
+        private final int lod;
+        private Matrix4f[] poses = new Matrix4f[0];
+        private Matrix3f[] normals = new Matrix3f[0];
+        private int[] lights = new int[0];
+        private int count = 0;
+        private CustomModel.Part[] parts = null; // The parts the draw calls were made for
+        private DrawCall[] partCalls = new DrawCall[0];
+
+        private InstanceList(CustomModel model, int lod) {
+            this.model = model;
+            this.lod = lod;
+        }
+
+        private void add(Matrix4f pose, Matrix3f normal, int packedLight) {
+            if (count == poses.length) {
+                grow();
+            }
+            poses[count].set(pose);
+            normals[count].set(normal);
+            lights[count] = packedLight;
+            count++;
+        }
+
+        private void grow() {
+            int capacity = Math.max(4, poses.length * 2);
+            Matrix4f[] newPoses = new Matrix4f[capacity];
+            Matrix3f[] newNormals = new Matrix3f[capacity];
+            int[] newLights = new int[capacity];
+
+            System.arraycopy(poses, 0, newPoses, 0, poses.length);
+            System.arraycopy(normals, 0, newNormals, 0, normals.length);
+            System.arraycopy(lights, 0, newLights, 0, lights.length);
+            for (int i = poses.length; i < capacity; i++) {
+                newPoses[i] = new Matrix4f();
+                newNormals[i] = new Matrix3f();
+            }
+
+            poses = newPoses;
+            normals = newNormals;
+            lights = newLights;
+        }
+
+        private void addDrawCalls(List<DrawCall> out) {
+            CustomModel.Part[] modelParts = model.getParts();
+            if (modelParts != parts) {
+                parts = modelParts;
+                partCalls = new DrawCall[modelParts.length];
+                for (int i = 0; i < modelParts.length; i++) {
+                    partCalls[i] = new DrawCall(this, modelParts[i]);
+                }
+            }
+            for (DrawCall call : partCalls) {
+                out.add(call);
+            }
+        }
+
+        private void emit(VertexConsumer consumer, CustomModel.Part part) {
+            for (int i = 0; i < count; i++) {
+                model.emit(consumer, lod, part, poses[i], normals[i], lights[i], OverlayTexture.NO_OVERLAY);
+            }
+        }
+    }
+
+    /**
+     * One part of a model drawn for all instances of a list
+     */
+    private record DrawCall(InstanceList list, CustomModel.Part part) {
+    }
+}
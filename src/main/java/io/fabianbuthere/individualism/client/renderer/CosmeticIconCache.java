@@ -0,0 +1,338 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import com.mojang.blaze3d.pipeline.RenderTarget;
+import com.mojang.blaze3d.pipeline.TextureTarget;
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import com.mojang.blaze3d.vertex.VertexSorting;
+import com.mojang.math.Axis;
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex.PreparedCosmetic;
+import io.fabianbuthere.individualism.client.model.CustomModel;
+import io.fabianbuthere.individualism.client.model.LazyModelCache;
+import io.fabianbuthere.individualism.item.custom.WearableItem;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.texture.AbstractTexture;
+import net.minecraft.client.renderer.texture.OverlayTexture;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.joml.Matrix4f;
+import org.lwjgl.opengl.GL11;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Renders the cosmetics of an item stack once into a tile of a shared offscreen icon atlas, so that GUIs
+ * only draw a single textured quad per stack. Tiles are reused least recently drawn first, and all of them
+ * are dropped when a resource reload publishes a new {@link CosmeticIndex}. Only a few tiles are rendered
+ * per frame, stacks without a tile yet are drawn in 3D meanwhile. All methods are called on the render thread.
+ */
+public final class CosmeticIconCache {
+    public static final ResourceLocation TEXTURE_LOCATION =
+            ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "textures/atlas/cosmetic_icons.png");
+
+    private static final int TILE_SIZE = 64;
+    private static final int TILES_PER_ROW = 16;
+    private static final int ATLAS_SIZE = TILE_SIZE * TILES_PER_ROW;
+    private static final int RENDERS_PER_FRAME = 8;
+
+    private static CosmeticIconCache instance;
+
+    private final RenderTarget target;
+    // Access ordered, so iteration starts at the least recently drawn icon
+    private final LinkedHashMap<IconKey, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final ArrayDeque<Tile> freeTiles = new ArrayDeque<>();
+    private final MultiBufferSource.BufferSource bufferSource = MultiBufferSource.immediate(new BufferBuilder(256));
+    private CosmeticIndex index = CosmeticIndex.EMPTY;
+
+    private long frame = 0;
+    private int rendersLeft = RENDERS_PER_FRAME;
+    private long renders = 0;
+
+    private CosmeticIconCache() {
+        target = new TextureTarget(ATLAS_SIZE, ATLAS_SIZE, true, Minecraft.ON_OSX);
+        // Tiles are drawn smaller than they are rendered
+        target.setFilterMode(GL11.GL_LINEAR);
+        target.setClearColor(0f, 0f, 0f, 0f);
+        target.clear(Minecraft.ON_OSX);
+        Minecraft.getInstance().getMainRenderTarget().bindWrite(true);
+        Minecraft.getInstance().getTextureManager().register(TEXTURE_LOCATION, new TargetTexture(target));
+
+        for (int y = 0; y < TILES_PER_ROW; y++) {
+            for (int x = 0; x < TILES_PER_ROW; x++) {
+                freeTiles.add(new Tile(x * TILE_SIZE, y * TILE_SIZE));
+            }
+        }
+    }
+
+    public static CosmeticIconCache getInstance() {
+        if (instance == null) {
+            instance = new CosmeticIconCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Whether the cache was created, without creating it
+     */
+    public static boolean isCreated() {
+        return instance != null;
+    }
+
+    public void beginFrame() {
+        frame++;
+        rendersLeft = RENDERS_PER_FRAME;
+    }
+
+    /**
+     * Draw the icon of a stack into the unit cube the item renderer sets up for custom renderers
+     */
+    public void renderIcon(ItemStack stack, PoseStack poseStack, MultiBufferSource buffer, int packedLight) {
+        CosmeticIndex currentIndex = CosmeticIndex.get();
+        if (currentIndex != index) {
+            freeAll();
+            index = currentIndex;
+        }
+
+        PreparedCosmetic[] cosmetics = getCosmetics(currentIndex, stack);
+        if (cosmetics.length == 0) {
+            return;
+        }
+
+        Tile tile = getTile(new IconKey(stack.getItem(), currentIndex.getVariantId(WearableItem.getVariant(stack))), cosmetics);
+        if (tile == null) {
+            renderModels(cosmetics, poseStack, buffer, packedLight);
+            return;
+        }
+
+        // Framebuffer rows start at the bottom, like the quad
+        float u0 = (float) tile.x / ATLAS_SIZE;
+        float u1 = (float) (tile.x + TILE_SIZE) / ATLAS_SIZE;
+        float v0 = (float) tile.y / ATLAS_SIZE;
+        float v1 = (float) (tile.y + TILE_SIZE) / ATLAS_SIZE;
+        Matrix4f pose = poseStack.last().pose();
+        VertexConsumer consumer = buffer.getBuffer(RenderType.text(TEXTURE_LOCATION));
+        consumer.vertex(pose, 0f, 0f, 0.5f).color(255, 255, 255, 255).uv(u0, v0).uv2(packedLight).endVertex();
+        consumer.vertex(pose, 1f, 0f, 0.5f).color(255, 255, 255, 255).uv(u1, v0).uv2(packedLight).endVertex();
+        consumer.vertex(pose, 1f, 1f, 0.5f).color(255, 255, 255, 255).uv(u1, v1).uv2(packedLight).endVertex();
+        consumer.vertex(pose, 0f, 1f, 0.5f).color(255, 255, 255, 255).uv(u0, v1).uv2(packedLight).endVertex();
+    }
+
+    /**
+     * Draw the cosmetics of a stack in 3D into the unit cube the item renderer sets up for custom renderers
+     */
+    public static void renderModels(ItemStack stack, PoseStack poseStack, MultiBufferSource buffer, int packedLight) {
+        renderModels(getCosmetics(CosmeticIndex.get(), stack), poseStack, buffer, packedLight);
+    }
+
+    private static void renderModels(PreparedCosmetic[] cosmetics, PoseStack poseStack, MultiBufferSource buffer,
+                                     int packedLight) {
+        PreparedCosmetic[] resolved = new PreparedCosmetic[cosmetics.length];
+        for (int i = 0; i < cosmetics.length; i++) {
+            // Models still loading stay null and are left out
+            resolved[i] = cosmetics[i].isLoaded() ? cosmetics[i] : LazyModelCache.getInstance().resolve(cosmetics[i]);
+        }
+        poseStack.pushPose();
+        poseStack.translate(0.5, 0.5, 0.5);
+        poseStack.scale(0.5f, 0.5f, 0.5f);
+        renderCosmetics(resolved, poseStack, buffer, packedLight);
+        poseStack.popPose();
+    }
+
+    public static PreparedCosmetic[] getCosmetics(CosmeticIndex index, ItemStack stack) {
+        return index.get(LivingEntity.getEquipmentSlotForItem(stack), stack);
+    }
+
+    /**
+     * @return the tile of an icon, rendering it if necessary, or null if it cannot be rendered this frame
+     */
+    private Tile getTile(IconKey key, PreparedCosmetic[] cosmetics) {
+        Tile tile = tiles.get(key);
+        if (tile != null) {
+            tile.lastDrawnFrame = frame;
+            return tile;
+        }
+        if (rendersLeft == 0) {
+            return null;
+        }
+
+        tile = freeTiles.poll();
+        if (tile == null) {
+            Iterator<Tile> iterator = tiles.values().iterator();
+            Tile eldest = iterator.next();
+            if (eldest.lastDrawnFrame == frame) {
+                // More icons on screen than tiles
+                return null;
+            }
+            iterator.remove();
+            tile = eldest;
+        }
+
+        rendersLeft--;
+        if (!renderTile(tile, cosmetics)) {
+            // Some models are still loading, try again in a later frame
+            freeTiles.add(tile);
+            return null;
+        }
+        renders++;
+        tile.lastDrawnFrame = frame;
+        tiles.put(key, tile);
+        return tile;
+    }
+
+    /**
+     * @return false if not all models were loaded yet
+     */
+    private boolean renderTile(Tile tile, PreparedCosmetic[] cosmetics) {
+        PreparedCosmetic[] resolved = new PreparedCosmetic[cosmetics.length];
+        for (int i = 0; i < cosmetics.length; i++) {
+            resolved[i] = cosmetics[i].isLoaded() ? cosmetics[i] : LazyModelCache.getInstance().resolve(cosmetics[i]);
+            if (resolved[i] == null) {
+                return false;
+            }
+        }
+
+        RenderSystem.backupProjectionMatrix();
+        PoseStack modelViewStack = RenderSystem.getModelViewStack();
+        modelViewStack.pushPose();
+        modelViewStack.setIdentity();
+        RenderSystem.applyModelViewMatrix();
+        RenderSystem.setProjectionMatrix(new Matrix4f().setOrtho(-1f, 1f, -1f, 1f, -10f, 10f), VertexSorting.ORTHOGRAPHIC_Z);
+
+        target.bindWrite(false);
+        RenderSystem.viewport(tile.x, tile.y, TILE_SIZE, TILE_SIZE);
+        GlStateManager._enableScissorTest();
+        GlStateManager._scissorBox(tile.x, tile.y, TILE_SIZE, TILE_SIZE);
+        RenderSystem.clearColor(0f, 0f, 0f, 0f);
+        RenderSystem.clearDepth(1.0);
+        RenderSystem.clear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT, Minecraft.ON_OSX);
+        GlStateManager._disableScissorTest();
+
+        renderCosmetics(resolved, new PoseStack(), bufferSource, LightTexture.FULL_BRIGHT);
+        bufferSource.endBatch();
+
+        Minecraft.getInstance().getMainRenderTarget().bindWrite(true);
+        modelViewStack.popPose();
+        RenderSystem.applyModelViewMatrix();
+        RenderSystem.restoreProjectionMatrix();
+        return true;
+    }
+
+    /**
+     * Draw loaded cosmetics at their worn positions, centered and scaled to fit into the cube from -1 to 1
+     * and turned like block items in GUIs. Null entries are skipped.
+     */
+    private static void renderCosmetics(PreparedCosmetic[] cosmetics, PoseStack poseStack, MultiBufferSource buffer,
+                                        int packedLight) {
+        float[] bounds = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        boolean any = false;
+        for (PreparedCosmetic cosmetic : cosmetics) {
+            if (cosmetic == null) {
+                continue;
+            }
+            float[] modelBounds = cosmetic.model().getBounds();
+            float[] offset = {cosmetic.offsetX(), cosmetic.offsetY(), cosmetic.offsetZ()};
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[axis] = Math.min(bounds[axis], modelBounds[axis] + offset[axis]);
+                bounds[axis + 3] = Math.max(bounds[axis + 3], modelBounds[axis + 3] + offset[axis]);
+            }
+            any = true;
+        }
+        if (!any) {
+            return;
+        }
+
+        float sizeX = bounds[3] - bounds[0];
+        float sizeY = bounds[4] - bounds[1];
+        float sizeZ = bounds[5] - bounds[2];
+        // Half the diagonal, so the icon fits for any rotation
+        float radius = Math.max(0.5f * (float) Math.sqrt(sizeX * sizeX + sizeY * sizeY + sizeZ * sizeZ), 1e-3f);
+
+        poseStack.pushPose();
+        poseStack.scale(0.95f / radius, 0.95f / radius, 0.95f / radius);
+        poseStack.mulPose(Axis.XP.rotationDegrees(30f));
+        poseStack.mulPose(Axis.YP.rotationDegrees(225f));
+        poseStack.translate(-(bounds[0] + bounds[3]) / 2f, -(bounds[1] + bounds[4]) / 2f, -(bounds[2] + bounds[5]) / 2f);
+
+        for (PreparedCosmetic cosmetic : cosmetics) {
+            if (cosmetic == null) {
+                continue;
+            }
+            CustomModel model = cosmetic.model();
+            poseStack.pushPose();
+            poseStack.translate(cosmetic.offsetX(), cosmetic.offsetY(), cosmetic.offsetZ());
+            for (CustomModel.Part part : model.getParts()) {
+                model.emit(buffer.getBuffer(part.getRenderType()), 0, part, poseStack.last().pose(),
+                        poseStack.last().normal(), packedLight, OverlayTexture.NO_OVERLAY);
+            }
+            poseStack.popPose();
+        }
+        poseStack.popPose();
+    }
+
+    private void freeAll() {
+        freeTiles.addAll(tiles.values());
+        tiles.clear();
+    }
+
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    public int getCapacity() {
+        return TILES_PER_ROW * TILES_PER_ROW;
+    }
+
+    /**
+     * Number of tiles rendered since the game started
+     */
+    public long getRenders() {
+        return renders;
+    }
+
+    private record IconKey(Item item, int variantId) {
+    }
+
+    private static final class Tile {
+        // Pixel position in the atlas, from the bottom left
+        private final int x;
+        private final int y;
+        private long lastDrawnFrame;
+
+        private Tile(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Exposes the color attachment of the icon atlas to the texture manager, so render types can bind it
+     */
+    private static final class TargetTexture extends AbstractTexture {
+        private TargetTexture(RenderTarget target) {
+            this.id = target.getColorTextureId();
+        }
+
+        @Override
+        public void load(@NotNull ResourceManager resourceManager) {
+        }
+
+        @Override
+        public void releaseId() {
+            // Owned by the render target
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.BlockEntityWithoutLevelRenderer;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.world.item.ItemDisplayContext;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Draws wearable items as the cosmetics they put on, in GUIs from the tiles of {@link CosmeticIconCache}
+ * and in 3D everywhere else. Used through the "builtin/entity" parent of their item models.
+ */
+public class CosmeticItemRenderer extends BlockEntityWithoutLevelRenderer {
+    private static CosmeticItemRenderer instance;
+
+    private CosmeticItemRenderer() {
+        super(Minecraft.getInstance().getBlockEntityRenderDispatcher(), Minecraft.getInstance().getEntityModels());
+    }
+
+    public static CosmeticItemRenderer getInstance() {
+        if (instance == null) {
+            instance = new CosmeticItemRenderer();
+        }
+        return instance;
+    }
+
+    @Override
+    public void renderByItem(@NotNull ItemStack stack, @NotNull ItemDisplayContext displayContext, @NotNull PoseStack poseStack,
+                             @NotNull MultiBufferSource buffer, int packedLight, int packedOverlay) {
+        if (displayContext == ItemDisplayContext.GUI) {
+            CosmeticIconCache.getInstance().renderIcon(stack, poseStack, buffer, packedLight);
+        } else {
+            CosmeticIconCache.renderModels(stack, poseStack, buffer, packedLight);
+        }
+    }
+}
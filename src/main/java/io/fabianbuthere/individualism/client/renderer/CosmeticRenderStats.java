@@ -0,0 +1,198 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import io.fabianbuthere.individualism.client.profiling.CosmeticFrameEvent;
+import io.fabianbuthere.individualism.config.ClientConfig;
+import jdk.jfr.EventType;
+
+/**
+ * Per frame counters of the cosmetic renderer. Counting happens into the current frame,
+ * which is published once the frame's cosmetics have been flushed and recorded as a
+ * {@link CosmeticFrameEvent} while a JFR recording is running.
+ * <p>
+ * The counters are plain increments and always on. Timing is only done while detailed stats
+ * are enabled or the frame event is being recorded.
+ */
+public final class CosmeticRenderStats {
+    private static final EventType FRAME_EVENT_TYPE = EventType.getEventType(CosmeticFrameEvent.class);
+
+    private static boolean timing = false;
+
+    private static int considered = 0;
+    private static int drawn = 0;
+    private static int culled = 0;
+    private static long vertices = 0;
+    private static int renderTypeSwitches = 0;
+    private static long playerNanos = 0;
+    private static long flushNanos = 0;
+    private static long budget = 0;
+    private static long budgetUsed = 0;
+    private static int degraded = 0;
+    private static int skipped = 0;
+
+    private static int lastConsidered = 0;
+    private static int lastDrawn = 0;
+    private static int lastCulled = 0;
+    private static long lastVertices = 0;
+    private static int lastRenderTypeSwitches = 0;
+    private static long lastPlayerNanos = 0;
+    private static long lastFlushNanos = 0;
+    private static long lastBudget = 0;
+    private static long lastBudgetUsed = 0;
+    private static int lastDegraded = 0;
+    private static int lastSkipped = 0;
+
+    private CosmeticRenderStats() {
+    }
+
+    /**
+     * Whether time spent on cosmetics is measured this frame
+     */
+    public static boolean isTiming() {
+        return timing;
+    }
+
+    public static void countConsidered(int count) {
+        considered += count;
+    }
+
+    public static void countDrawn(int vertexCount) {
+        drawn++;
+        vertices += vertexCount;
+    }
+
+    public static void countCulled(int count) {
+        culled += count;
+    }
+
+    public static void countRenderTypeSwitch() {
+        renderTypeSwitches++;
+    }
+
+    /**
+     * Record the outcome of scheduling the frame's cosmetics. Skipped cosmetics and the vertices saved by
+     * skipping or degrading were already counted as drawn and are taken back out.
+     */
+    public static void countBudget(long vertexBudget, long used, long savedVertices, int degradedCount, int skippedCount) {
+        budget = vertexBudget;
+        budgetUsed = used;
+        degraded = degradedCount;
+        skipped = skippedCount;
+        drawn -= skippedCount;
+        vertices -= savedVertices;
+    }
+
+    public static void addPlayerNanos(long nanos) {
+        playerNanos += nanos;
+    }
+
+    public static void addFlushNanos(long nanos) {
+        flushNanos += nanos;
+    }
+
+    public static void endFrame() {
+        commitFrameEvent();
+
+        lastConsidered = considered;
+        lastDrawn = drawn;
+        lastCulled = culled;
+        lastVertices = vertices;
+        lastRenderTypeSwitches = renderTypeSwitches;
+        lastPlayerNanos = playerNanos;
+        lastFlushNanos = flushNanos;
+        lastBudget = budget;
+        lastBudgetUsed = budgetUsed;
+        lastDegraded = degraded;
+        lastSkipped = skipped;
+        considered = 0;
+        drawn = 0;
+        culled = 0;
+        vertices = 0;
+        renderTypeSwitches = 0;
+        playerNanos = 0;
+        flushNanos = 0;
+        budget = 0;
+        budgetUsed = 0;
+        degraded = 0;
+        skipped = 0;
+
+        // The time budget is converted to vertices with the measured flush time
+        timing = ClientConfig.detailedStats || ClientConfig.frameTimeBudgetMicros > 0 || FRAME_EVENT_TYPE.isEnabled();
+    }
+
+    private static void commitFrameEvent() {
+        // Not even the event is allocated unless a recording has it enabled
+        if (!FRAME_EVENT_TYPE.isEnabled()) {
+            return;
+        }
+
+        CosmeticFrameEvent event = new CosmeticFrameEvent();
+        if (event.shouldCommit()) {
+            event.considered = considered;
+            event.drawn = drawn;
+            event.culled = culled;
+            event.vertices = vertices;
+            event.renderTypeSwitches = renderTypeSwitches;
+            event.playerNanos = playerNanos;
+            event.flushNanos = flushNanos;
+            event.degraded = degraded;
+            event.skipped = skipped;
+            event.commit();
+        }
+    }
+
+    public static int getConsidered() {
+        return lastConsidered;
+    }
+
+    public static int getDrawn() {
+        return lastDrawn;
+    }
+
+    public static int getCulled() {
+        return lastCulled;
+    }
+
+    public static long getVertices() {
+        return lastVertices;
+    }
+
+    public static int getRenderTypeSwitches() {
+        return lastRenderTypeSwitches;
+    }
+
+    /**
+     * Time spent in the player render hook, 0 unless timing
+     */
+    public static long getPlayerNanos() {
+        return lastPlayerNanos;
+    }
+
+    /**
+     * Time spent drawing the collected cosmetics, 0 unless timing
+     */
+    public static long getFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    /**
+     * Vertex budget of the last frame, Long.MAX_VALUE if only a time budget is set and not measured yet
+     */
+    public static long getBudget() {
+        return lastBudget;
+    }
+
+    public static long getBudgetUsed() {
+        return lastBudgetUsed;
+    }
+
+    /**
+     * Cosmetics drawn at a coarser level of detail than their distance called for
+     */
+    public static int getDegraded() {
+        return lastDegraded;
+    }
+
+    public static int getSkipped() {
+        return lastSkipped;
+    }
+}
@@ -0,0 +1,202 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import io.fabianbuthere.individualism.client.model.CustomModel;
+import io.fabianbuthere.individualism.config.ClientConfig;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Decides which of the cosmetics collected during a frame are drawn, and at which level of detail, when a
+ * per-frame budget is configured. Cosmetics are taken closest first; once the next one does not fit anymore
+ * it gets a coarser level, and it is skipped if even the coarsest does not fit. Every frame in which a player
+ * loses a cosmetic adds to their skip debt, which moves them up and is paid off again one frame at a time
+ * while they are drawn, so the skipped players rotate instead of always being the same. To avoid flicker,
+ * players stay drawn or skipped for at least {@link #MIN_RUN} frames, and afterwards players drawn in full
+ * last frame keep their place unless someone else beats them by a wide margin. A time budget is turned
+ * into vertices with the measured cost per vertex of recent flushes.
+ */
+public final class CosmeticScheduler {
+    private static final Comparator<Candidate> BY_PRIORITY = Comparator.comparingDouble(candidate -> candidate.priority);
+    // Weight of the newest flush in the cost per vertex estimate
+    private static final double COST_SMOOTHING = 0.1;
+    // Priority of players drawn in full last frame, others must be this much closer to take their place
+    private static final double KEEP_FACTOR = 0.5;
+    // Frames a player stays drawn or skipped before they can swap again
+    private static final int MIN_RUN = 2;
+
+    private static Candidate[] candidates = new Candidate[0];
+    private static int count = 0;
+
+    // Skip debt of every player with cosmetics last frame, the players who lost one, and the frames in a
+    // row each player was drawn or skipped. Swapped every frame to forget absent players.
+    private static Object2IntMap<UUID> skipDebts = new Object2IntOpenHashMap<>();
+    private static Object2IntMap<UUID> nextSkipDebts = new Object2IntOpenHashMap<>();
+    private static Set<UUID> skipped = new ObjectOpenHashSet<>();
+    private static Set<UUID> nextSkipped = new ObjectOpenHashSet<>();
+    private static Object2IntMap<UUID> runs = new Object2IntOpenHashMap<>();
+    private static Object2IntMap<UUID> nextRuns = new Object2IntOpenHashMap<>();
+
+    private static double nanosPerVertex = 0;
+
+    private CosmeticScheduler() {
+    }
+
+    public interface Sink {
+        void accept(CustomModel model, int lod, Matrix4f pose, Matrix3f normal, int packedLight);
+    }
+
+    static boolean isEnabled() {
+        return ClientConfig.frameVertexBudget > 0 || ClientConfig.frameTimeBudgetMicros > 0;
+    }
+
+    public static void add(CustomModel model, int lod, PoseStack.Pose pose, int packedLight, UUID playerId, double distanceSqr) {
+        if (count == candidates.length) {
+            grow();
+        }
+        Candidate candidate = candidates[count++];
+        candidate.model = model;
+        candidate.lod = lod;
+        candidate.pose.set(pose.pose());
+        candidate.normal.set(pose.normal());
+        candidate.packedLight = packedLight;
+        candidate.playerId = playerId;
+        candidate.priority = getPriority(playerId, distanceSqr);
+    }
+
+    private static double getPriority(UUID playerId, double distanceSqr) {
+        double priority = distanceSqr / (1 + skipDebts.getInt(playerId));
+        if (!skipDebts.containsKey(playerId)) {
+            return priority;
+        }
+
+        boolean held = runs.getInt(playerId) < MIN_RUN;
+        if (!skipped.contains(playerId)) {
+            return held ? Double.NEGATIVE_INFINITY : priority * KEEP_FACTOR;
+        }
+        // Still drawn if there is room, e.g. when the budget was raised
+        return held ? Double.POSITIVE_INFINITY : priority;
+    }
+
+    /**
+     * Pass the cosmetics that fit into this frame's configured budget to the sink and forget the rest
+     */
+    static void schedule(Sink sink) {
+        // Still drains cosmetics collected just before the budget was turned off
+        if (count == 0 && !isEnabled()) {
+            return;
+        }
+        schedule(sink, getVertexBudget());
+    }
+
+    /**
+     * Pass the cosmetics that fit into the given number of vertices to the sink and forget the rest
+     */
+    public static void schedule(Sink sink, long budget) {
+        long remaining = budget;
+        long requested = 0;
+        int degraded = 0;
+        int skippedCount = 0;
+
+        Arrays.sort(candidates, 0, count, BY_PRIORITY);
+        for (int i = 0; i < count; i++) {
+            Candidate candidate = candidates[i];
+            CustomModel model = candidate.model;
+            requested += model.getVertexCount(candidate.lod);
+
+            int lod = candidate.lod;
+            while (lod < model.getLodCount() && model.getVertexCount(lod) > remaining) {
+                lod++;
+            }
+
+            UUID playerId = candidate.playerId;
+            if (lod == model.getLodCount()) {
+                skippedCount++;
+                // Once per frame however many cosmetics the player lost
+                if (nextSkipped.add(playerId)) {
+                    nextSkipDebts.put(playerId, skipDebts.getInt(playerId) + 1);
+                }
+            } else {
+                if (!nextSkipped.contains(playerId)) {
+                    nextSkipDebts.put(playerId, Math.max(0, skipDebts.getInt(playerId) - 1));
+                }
+                if (lod != candidate.lod) {
+                    degraded++;
+                }
+                remaining -= model.getVertexCount(lod);
+                sink.accept(model, lod, candidate.pose, candidate.normal, candidate.packedLight);
+            }
+            candidate.model = null;
+            candidate.playerId = null;
+        }
+        count = 0;
+
+        CosmeticRenderStats.countBudget(budget, budget - remaining, requested - (budget - remaining), degraded, skippedCount);
+
+        for (Object2IntMap.Entry<UUID> entry : Object2IntMaps.fastIterable(nextSkipDebts)) {
+            UUID playerId = entry.getKey();
+            boolean continued = skipDebts.containsKey(playerId) && skipped.contains(playerId) == nextSkipped.contains(playerId);
+            nextRuns.put(playerId, continued ? runs.getInt(playerId) + 1 : 1);
+        }
+
+        Object2IntMap<UUID> swapDebts = skipDebts;
+        skipDebts = nextSkipDebts;
+        nextSkipDebts = swapDebts;
+        nextSkipDebts.clear();
+        Set<UUID> swapSkipped = skipped;
+        skipped = nextSkipped;
+        nextSkipped = swapSkipped;
+        nextSkipped.clear();
+        Object2IntMap<UUID> swapRuns = runs;
+        runs = nextRuns;
+        nextRuns = swapRuns;
+        nextRuns.clear();
+    }
+
+    /**
+     * Update the cost per vertex used for the time budget with a finished flush
+     */
+    static void measure(long flushNanos, long vertices) {
+        if (vertices == 0) {
+            return;
+        }
+        double sample = (double) flushNanos / vertices;
+        nanosPerVertex = nanosPerVertex == 0 ? sample : nanosPerVertex + COST_SMOOTHING * (sample - nanosPerVertex);
+    }
+
+    private static long getVertexBudget() {
+        long budget = ClientConfig.frameVertexBudget > 0 ? ClientConfig.frameVertexBudget : Long.MAX_VALUE;
+        // Without a measurement yet everything is drawn once
+        if (ClientConfig.frameTimeBudgetMicros > 0 && nanosPerVertex > 0) {
+            budget = Math.min(budget, (long) (ClientConfig.frameTimeBudgetMicros * 1000L / nanosPerVertex));
+        }
+        return budget;
+    }
+
+    private static void grow() {
+        Candidate[] grown = Arrays.copyOf(candidates, Math.max(16, candidates.length * 2));
+        for (int i = candidates.length; i < grown.length; i++) {
+            grown[i] = new Candidate();
+        }
+        candidates = grown;
+    }
+
+    private static final class Candidate {
+        private final Matrix4f pose = new Matrix4f();
+        private final Matrix3f normal = new Matrix3f();
+        private CustomModel model;
+        private int lod;
+        private int packedLight;
+        private UUID playerId;
+        private double priority;
+    }
+}
@@ -0,0 +1,110 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import io.fabianbuthere.individualism.client.model.CosmeticIndex;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex.PreparedCosmetic;
+import io.fabianbuthere.individualism.item.custom.WearableItem;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cosmetics to draw for each player, resolved once per equipment change instead of every frame.
+ * An entry is rebuilt when any worn stack or its variant changes or the cosmetic index is replaced, and
+ * dropped when an equipment change event arrives for the player or the player leaves the level. Slots
+ * synced by the server through {@link SyncedCosmetics} take precedence over the worn stacks.
+ */
+public final class PlayerCosmeticCache {
+    // Same order as the slots of CosmeticStatePacket
+    private static final EquipmentSlot[] SLOTS = {EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET};
+    private static final PreparedCosmetic[] NONE = new PreparedCosmetic[0];
+
+    // Invalidated from the integrated server thread, read on the render thread
+    private static final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    private PlayerCosmeticCache() {
+    }
+
+    /**
+     * Get the cosmetics of all worn slots. Does not allocate unless the player's equipment changed.
+     */
+    public static PreparedCosmetic[] get(Player player, CosmeticIndex index) {
+        Entry entry = entries.get(player.getUUID());
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(player.getUUID(), entry);
+        }
+
+        if (!entry.matches(player, index)) {
+            entry.rebuild(player, index);
+        }
+        return entry.cosmetics;
+    }
+
+    public static void invalidate(UUID playerId) {
+        entries.remove(playerId);
+    }
+
+    public static void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+        private final ItemStack[] stacks = new ItemStack[SLOTS.length];
+        private final String[] variants = new String[SLOTS.length];
+        private CosmeticIndex index = null;
+        private SyncedCosmetics.State synced = null;
+        private int syncedVersion = -1;
+        private PreparedCosmetic[] cosmetics = NONE;
+
+        private boolean matches(Player player, CosmeticIndex currentIndex) {
+            if (index != currentIndex) {
+                return false;
+            }
+            SyncedCosmetics.State state = SyncedCosmetics.get(player.getId());
+            if (state != null || synced != null) {
+                return state == synced && state.getVersion() == syncedVersion;
+            }
+            for (int i = 0; i < SLOTS.length; i++) {
+                ItemStack stack = player.getItemBySlot(SLOTS[i]);
+                // Equipment updates replace the stack, but tags can be edited in place on the same stack
+                if (stack != stacks[i] || !WearableItem.getVariant(stack).equals(variants[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rebuild(Player player, CosmeticIndex currentIndex) {
+            SyncedCosmetics.State state = SyncedCosmetics.get(player.getId());
+            int count = 0;
+            PreparedCosmetic[][] bySlot = new PreparedCosmetic[SLOTS.length][];
+            for (int i = 0; i < SLOTS.length; i++) {
+                if (state != null) {
+                    bySlot[i] = currentIndex.get(SLOTS[i], state.getItem(i), currentIndex.getVariantId(state.getVariant(i)));
+                } else {
+                    ItemStack stack = player.getItemBySlot(SLOTS[i]);
+                    stacks[i] = stack;
+                    variants[i] = WearableItem.getVariant(stack);
+                    bySlot[i] = currentIndex.get(SLOTS[i], stack);
+                }
+                count += bySlot[i].length;
+            }
+            synced = state;
+            syncedVersion = state != null ? state.getVersion() : -1;
+
+            PreparedCosmetic[] result = count == 0 ? NONE : new PreparedCosmetic[count];
+            int offset = 0;
+            for (PreparedCosmetic[] slotCosmetics : bySlot) {
+                System.arraycopy(slotCosmetics, 0, result, offset, slotCosmetics.length);
+                offset += slotCosmetics.length;
+            }
+
+            index = currentIndex;
+            cosmetics = result;
+        }
+    }
+}
@@ -3,27 +3,34 @@ package io.fabianbuthere.individualism.client.renderer;
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.math.Axis;
 import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex.PreparedCosmetic;
 import io.fabianbuthere.individualism.client.model.CustomModel;
-import io.fabianbuthere.individualism.client.model.CustomModelLoader;
-import io.fabianbuthere.individualism.client.model.ModelMetadata;
-import io.fabianbuthere.individualism.client.model.ModelMetadataLoader;
+import io.fabianbuthere.individualism.client.model.LazyModelCache;
+import io.fabianbuthere.individualism.config.ClientConfig;
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.culling.Frustum;
 import net.minecraft.client.renderer.texture.OverlayTexture;
-import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.Mth;
+import net.minecraft.util.profiling.ProfilerFiller;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.phys.AABB;
 import net.minecraftforge.client.event.RenderPlayerEvent;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
-import net.minecraftforge.registries.ForgeRegistries;
 
-import java.util.Map;
+import java.util.UUID;
 
 public class PlayerModelRenderer {
     private static boolean initialized = false;
+    // Loaded cosmetics of the player being drawn, only used on the render thread
+    private static PreparedCosmetic[] resolved = new PreparedCosmetic[8];
 
     public static void init() {
         if (!initialized) {
             MinecraftForge.EVENT_BUS.register(PlayerModelRenderer.class);
+            MinecraftForge.EVENT_BUS.register(CosmeticBatcher.class);
             initialized = true;
             Individualism.LOGGER.info("Player model renderer initialized");
         }
@@ -31,52 +38,128 @@ public class PlayerModelRenderer {
 
     @SubscribeEvent
     public static void onRenderPlayer(RenderPlayerEvent.Post event) {
+        ProfilerFiller profiler = Minecraft.getInstance().getProfiler();
+        profiler.push("individualism_cosmetics");
+        if (CosmeticRenderStats.isTiming()) {
+            long start = System.nanoTime();
+            renderPlayer(event);
+            CosmeticRenderStats.addPlayerNanos(System.nanoTime() - start);
+        } else {
+            renderPlayer(event);
+        }
+        profiler.pop();
+    }
+
+    private static void renderPlayer(RenderPlayerEvent.Post event) {
+        CosmeticIndex index = CosmeticIndex.get();
+
+        if (index.isEmpty()) {
+            return;
+        }
+
         Player player = event.getEntity();
-        PoseStack poseStack = event.getPoseStack();
-        float partialTick = event.getPartialTick();
-        MultiBufferSource bufferSource = event.getMultiBufferSource();
 
-        Map<ResourceLocation, CustomModel> models = CustomModelLoader.getInstance().getAllModels();
+        double distanceSqr = player.distanceToSqr(Minecraft.getInstance().gameRenderer.getMainCamera().getPosition());
+        if (distanceSqr > ClientConfig.maxDistanceSqr) {
+            return;
+        }
 
-        if (models.isEmpty()) {
+        PreparedCosmetic[] cosmetics = PlayerCosmeticCache.get(player, index);
+        if (cosmetics.length == 0) {
             return;
         }
 
+        PoseStack poseStack = event.getPoseStack();
+        float partialTick = event.getPartialTick();
+        MultiBufferSource bufferSource = event.getMultiBufferSource();
+        int packedLight = event.getPackedLight();
+        int lod = selectLod(distanceSqr);
+
+        Frustum frustum = CosmeticBatcher.getFrustum();
+        double x = Mth.lerp(partialTick, player.xOld, player.getX());
+        double y = Mth.lerp(partialTick, player.yOld, player.getY());
+        double z = Mth.lerp(partialTick, player.zOld, player.getZ());
+
         poseStack.pushPose();
 
         float yaw = player.yBodyRotO + (player.yBodyRot - player.yBodyRotO) * partialTick;
         poseStack.mulPose(Axis.YP.rotationDegrees(-yaw));
         poseStack.translate(0, player.isCrouching() ? -1.5 / 16.0 : -1.0 / 16.0, 0);
 
-        for (Map.Entry<ResourceLocation, CustomModel> modelEntry : models.entrySet()) {
-            ResourceLocation modelId = modelEntry.getKey();
-            CustomModel model = modelEntry.getValue();
+        renderCosmetics(cosmetics, poseStack, bufferSource, lod, packedLight, frustum, x, y, z,
+                player.getUUID(), distanceSqr);
+
+        poseStack.popPose();
+    }
+
+    private static int selectLod(double distanceSqr) {
+        double[] thresholds = ClientConfig.lodDistancesSqr;
+        int lod = 0;
+        while (lod < thresholds.length && distanceSqr > thresholds[lod]) {
+            lod++;
+        }
+        return lod;
+    }
 
-            // Get metadata for this model
-            ModelMetadata metadata = ModelMetadataLoader.getInstance().getMetadata(modelId);
-            if (metadata == null) {
-                Individualism.LOGGER.error("Missing metadata for model: {}", modelId);
-                continue;
+    public static void renderCosmetics(PreparedCosmetic[] cosmetics, PoseStack poseStack,
+                                       MultiBufferSource bufferSource, int lod, int packedLight,
+                                       Frustum frustum, double x, double y, double z,
+                                       UUID playerId, double distanceSqr) {
+        CosmeticRenderStats.countConsidered(cosmetics.length);
+        if (resolved.length < cosmetics.length) {
+            resolved = new PreparedCosmetic[Math.max(cosmetics.length, resolved.length * 2)];
+        }
+
+        int count = 0;
+        float radius = 0f;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (PreparedCosmetic cosmetic : cosmetics) {
+            if (!cosmetic.isLoaded()) {
+                cosmetic = LazyModelCache.getInstance().resolve(cosmetic);
+                if (cosmetic == null) {
+                    // Still loading in the background
+                    continue;
+                }
             }
+            resolved[count++] = cosmetic;
+            radius = Math.max(radius, cosmetic.cullRadius());
+            minY = Math.min(minY, cosmetic.cullMinY());
+            maxY = Math.max(maxY, cosmetic.cullMaxY());
+        }
 
-            final boolean shouldRender = player.getItemBySlot(metadata.armorSlot().getSlot())
-                    .is(ForgeRegistries.ITEMS.getValue(ResourceLocation.bySeparator(metadata.onItem(), ':')));
+        // The cosmetics of a player are close together, so they are culled as one box
+        if (count > 0 && frustum != null && !isVisible(frustum, x, y, z, radius, minY, maxY)) {
+            CosmeticRenderStats.countCulled(count);
+            count = 0;
+        }
 
-            if (!shouldRender) continue;
+        for (int i = 0; i < count; i++) {
+            PreparedCosmetic cosmetic = resolved[i];
+            resolved[i] = null;
 
-            float offsetX = metadata.offsetX();
-            float offsetY = metadata.offsetY();
-            float offsetZ = metadata.offsetZ();
+            CustomModel model = cosmetic.model();
+            int modelLod = Math.min(lod, model.getLodCount() - 1);
+            CosmeticRenderStats.countDrawn(model.getVertexCount(modelLod));
 
             poseStack.pushPose();
 
-            poseStack.translate(offsetX / 16.0, offsetY / 16.0, offsetZ / 16.0);
+            poseStack.translate(cosmetic.offsetX(), cosmetic.offsetY(), cosmetic.offsetZ());
 
-            model.render(poseStack, bufferSource, event.getPackedLight(), OverlayTexture.NO_OVERLAY);
+            if (CosmeticBatcher.isCollecting()) {
+                CosmeticBatcher.record(model, modelLod, poseStack.last(), packedLight, playerId, distanceSqr);
+            } else {
+                model.render(poseStack, bufferSource, modelLod, packedLight, OverlayTexture.NO_OVERLAY);
+            }
 
             poseStack.popPose();
         }
+    }
 
-        poseStack.popPose();
+    private static boolean isVisible(Frustum frustum, double x, double y, double z, float radius, float minY, float maxY) {
+        // Crouching moves cosmetics down by up to 1.5 pixels, standing by 1
+        return frustum.isVisible(new AABB(
+                x - radius, y + minY - 1.5 / 16.0, z - radius,
+                x + radius, y + maxY - 1.0 / 16.0, z + radius));
     }
 }
@@ -0,0 +1,97 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import io.fabianbuthere.individualism.network.CosmeticStatePacket;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cosmetic slots of players as sent by the server, keyed by entity id. When present they are used instead
+ * of the worn stacks, which the server does not always send with their tags. Only touched on the main thread.
+ */
+public final class SyncedCosmetics {
+    // Server variant id to name, id 0 is no variant
+    private static final List<String> variantNames = new ArrayList<>(List.of(""));
+    private static final Int2ObjectMap<State> states = new Int2ObjectOpenHashMap<>();
+
+    private SyncedCosmetics() {
+    }
+
+    public static void addVariants(int firstId, List<String> names) {
+        // A full table replaces whatever was known before
+        while (variantNames.size() > firstId) {
+            variantNames.remove(variantNames.size() - 1);
+        }
+        while (variantNames.size() < firstId) {
+            variantNames.add("");
+        }
+        variantNames.addAll(names);
+    }
+
+    public static void apply(List<CosmeticStatePacket.Delta> deltas) {
+        for (CosmeticStatePacket.Delta delta : deltas) {
+            State state = states.computeIfAbsent(delta.entityId(), id -> new State());
+            for (int slot = 0; slot < CosmeticStatePacket.SLOT_COUNT; slot++) {
+                if ((delta.changedSlots() & 1 << slot) != 0) {
+                    state.items[slot] = BuiltInRegistries.ITEM.byId(delta.items()[slot]);
+                    int variant = delta.variants()[slot];
+                    state.variants[slot] = variant < variantNames.size() ? variantNames.get(variant) : "";
+                }
+            }
+            state.version++;
+        }
+    }
+
+    /**
+     * @return the synced slots of an entity, or null if the server has not sent any
+     */
+    public static State get(int entityId) {
+        return states.get(entityId);
+    }
+
+    public static void remove(int entityId) {
+        states.remove(entityId);
+    }
+
+    /**
+     * Forget all players, the variant table stays valid for the whole connection
+     */
+    public static void clearStates() {
+        states.clear();
+    }
+
+    public static void clear() {
+        states.clear();
+        variantNames.subList(1, variantNames.size()).clear();
+    }
+
+    public static final class State {
+        private final Item[] items = new Item[CosmeticStatePacket.SLOT_COUNT];
+        private final String[] variants = new String[CosmeticStatePacket.SLOT_COUNT];
+        private int version = 0;
+
+        private State() {
+            for (int i = 0; i < items.length; i++) {
+                items[i] = Items.AIR;
+                variants[i] = "";
+            }
+        }
+
+        public Item getItem(int slot) {
+            return items[slot];
+        }
+
+        public String getVariant(int slot) {
+            return variants[slot];
+        }
+
+        public int getVersion() {
+            return version;
+        }
+    }
+}
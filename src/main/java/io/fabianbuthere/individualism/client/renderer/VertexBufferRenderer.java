@@ -0,0 +1,202 @@
+package io.fabianbuthere.individualism.client.renderer;
+
+import com.mojang.blaze3d.platform.Window;
+import com.mojang.blaze3d.shaders.Uniform;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.Tesselator;
+import com.mojang.blaze3d.vertex.VertexBuffer;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.CustomModel;
+import io.fabianbuthere.individualism.config.ClientConfig;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.ShaderInstance;
+import net.minecraft.client.renderer.texture.OverlayTexture;
+import net.minecraftforge.fml.ModList;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Draws baked cosmetic models from GPU resident vertex buffers.
+ * Geometry is uploaded once per resource reload; per draw only the model-view matrix,
+ * light and overlay change.
+ */
+public final class VertexBufferRenderer {
+    // Attribute locations of the entity shaders, in DefaultVertexFormat.NEW_ENTITY order
+    private static final int OVERLAY_ATTRIBUTE = 3;
+    private static final int LIGHT_ATTRIBUTE = 4;
+    private static final String[] SAMPLER_NAMES = new String[12];
+
+    private static final Matrix4f IDENTITY_POSE = new Matrix4f();
+    private static final Matrix3f IDENTITY_NORMAL = new Matrix3f();
+
+    private static final Matrix4f modelView = new Matrix4f();
+    private static final Vector3f lightDirection = new Vector3f();
+
+    private static Boolean shaderModPresent = null;
+
+    static {
+        for (int i = 0; i < SAMPLER_NAMES.length; i++) {
+            SAMPLER_NAMES[i] = "Sampler" + i;
+        }
+    }
+
+    private VertexBufferRenderer() {
+    }
+
+    /**
+     * Whether uploads should happen at all. Shader mods replace the entity shaders and
+     * expect per-vertex light and overlay, so the immediate path is used with them.
+     */
+    public static boolean isAvailable() {
+        if (shaderModPresent == null) {
+            shaderModPresent = ModList.get().isLoaded("oculus") || isClassPresent("net.optifine.Config");
+            if (shaderModPresent) {
+                Individualism.LOGGER.info("Shader mod detected, cosmetic vertex buffers are disabled");
+            }
+        }
+        return !shaderModPresent;
+    }
+
+    public static boolean isActive() {
+        return ClientConfig.renderMode == ClientConfig.RenderMode.VERTEX_BUFFER && isAvailable();
+    }
+
+    private static boolean isClassPresent(String className) {
+        try {
+            Class.forName(className, false, VertexBufferRenderer.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Upload the baked vertices of one part and level of a model to a new static vertex buffer, with their
+     * UVs mapped into the render texture (see CustomModel#setAtlasSprite). Must be called on the render thread.
+     */
+    public static VertexBuffer upload(CustomModel model, int lod, CustomModel.Part part) {
+        BufferBuilder builder = Tesselator.getInstance().getBuilder();
+        builder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.NEW_ENTITY);
+
+        // Stored in model space, the pose is applied per draw
+        model.emit(builder, lod, part, IDENTITY_POSE, IDENTITY_NORMAL, LightTexture.FULL_BRIGHT, OverlayTexture.NO_OVERLAY);
+
+        VertexBuffer vertexBuffer = new VertexBuffer(VertexBuffer.Usage.STATIC);
+        vertexBuffer.bind();
+        vertexBuffer.upload(builder.end());
+        VertexBuffer.unbind();
+        return vertexBuffer;
+    }
+
+    public static void draw(VertexBuffer vertexBuffer, RenderType renderType, PoseStack.Pose pose,
+                            int packedLight, int packedOverlay) {
+        begin(vertexBuffer, renderType);
+        drawInstance(vertexBuffer, pose.pose(), pose.normal(), packedLight, packedOverlay);
+        end(renderType);
+    }
+
+    /**
+     * Set up render state and bind the buffer once for any number of {@link #drawInstance} calls
+     */
+    public static void begin(VertexBuffer vertexBuffer, RenderType renderType) {
+        renderType.setupRenderState();
+        vertexBuffer.bind();
+
+        // Light and overlay are constant for each draw, so they are fed as generic
+        // attribute values instead of the per-vertex data stored in the buffer
+        GL20.glDisableVertexAttribArray(OVERLAY_ATTRIBUTE);
+        GL20.glDisableVertexAttribArray(LIGHT_ATTRIBUTE);
+    }
+
+    public static void drawInstance(VertexBuffer vertexBuffer, Matrix4f pose, Matrix3f normal,
+                                    int packedLight, int packedOverlay) {
+        ShaderInstance shader = RenderSystem.getShader();
+        if (shader == null) {
+            return;
+        }
+
+        GL30.glVertexAttribI2i(OVERLAY_ATTRIBUTE, packedOverlay & 0xFFFF, packedOverlay >> 16 & 0xFFFF);
+        GL30.glVertexAttribI2i(LIGHT_ATTRIBUTE, packedLight & 0xFFFF, packedLight >> 16 & 0xFFFF);
+
+        modelView.set(RenderSystem.getModelViewMatrix()).mul(pose);
+        setupUniforms(shader, modelView, normal);
+        shader.apply();
+        vertexBuffer.draw();
+        shader.clear();
+    }
+
+    public static void end(RenderType renderType) {
+        VertexBuffer.unbind();
+        renderType.clearRenderState();
+    }
+
+    /**
+     * Mirrors VertexBuffer#drawWithShader, except that the light directions are moved into
+     * model space because the buffered normals are not transformed by the pose.
+     */
+    private static void setupUniforms(ShaderInstance shader, Matrix4f modelViewMatrix, Matrix3f normalMatrix) {
+        for (int i = 0; i < SAMPLER_NAMES.length; i++) {
+            shader.setSampler(SAMPLER_NAMES[i], RenderSystem.getShaderTexture(i));
+        }
+
+        if (shader.MODEL_VIEW_MATRIX != null) {
+            shader.MODEL_VIEW_MATRIX.set(modelViewMatrix);
+        }
+        if (shader.PROJECTION_MATRIX != null) {
+            shader.PROJECTION_MATRIX.set(RenderSystem.getProjectionMatrix());
+        }
+        if (shader.INVERSE_VIEW_ROTATION_MATRIX != null) {
+            shader.INVERSE_VIEW_ROTATION_MATRIX.set(RenderSystem.getInverseViewRotationMatrix());
+        }
+        if (shader.COLOR_MODULATOR != null) {
+            shader.COLOR_MODULATOR.set(RenderSystem.getShaderColor());
+        }
+        if (shader.FOG_START != null) {
+            shader.FOG_START.set(RenderSystem.getShaderFogStart());
+        }
+        if (shader.FOG_END != null) {
+            shader.FOG_END.set(RenderSystem.getShaderFogEnd());
+        }
+        if (shader.FOG_COLOR != null) {
+            shader.FOG_COLOR.set(RenderSystem.getShaderFogColor());
+        }
+        if (shader.FOG_SHAPE != null) {
+            shader.FOG_SHAPE.set(RenderSystem.getShaderFogShape().getIndex());
+        }
+        if (shader.TEXTURE_MATRIX != null) {
+            shader.TEXTURE_MATRIX.set(RenderSystem.getTextureMatrix());
+        }
+        if (shader.GAME_TIME != null) {
+            shader.GAME_TIME.set(RenderSystem.getShaderGameTime());
+        }
+        if (shader.SCREEN_SIZE != null) {
+            Window window = Minecraft.getInstance().getWindow();
+            shader.SCREEN_SIZE.set((float) window.getWidth(), (float) window.getHeight());
+        }
+
+        RenderSystem.setupShaderLights(shader);
+        toModelSpace(shader.LIGHT0_DIRECTION, normalMatrix);
+        toModelSpace(shader.LIGHT1_DIRECTION, normalMatrix);
+    }
+
+    private static void toModelSpace(Uniform light, Matrix3f normalMatrix) {
+        if (light == null) {
+            return;
+        }
+        FloatBuffer values = light.getFloatBuffer();
+        // The normal matrix is a pure rotation, so its transpose is its inverse
+        lightDirection.set(values.get(0), values.get(1), values.get(2)).mulTranspose(normalMatrix);
+        light.set(lightDirection.x(), lightDirection.y(), lightDirection.z());
+    }
+}
@@ -0,0 +1,100 @@
+package io.fabianbuthere.individualism.config;
+
+import io.fabianbuthere.individualism.Individualism;
+import net.minecraftforge.common.ForgeConfigSpec;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.event.config.ModConfigEvent;
+
+/**
+ * Client side configuration. Values are copied into plain static fields on load,
+ * so they can be read from the render thread every frame without any overhead.
+ */
+@Mod.EventBusSubscriber(modid = Individualism.MOD_ID, bus = Mod.EventBusSubscriber.Bus.MOD)
+public class ClientConfig {
+    public enum RenderMode {
+        /**
+         * Re-emit all vertices into the entity buffers every frame
+         */
+        IMMEDIATE,
+        /**
+         * Upload each model to the GPU once per reload and draw it from there
+         */
+        VERTEX_BUFFER
+    }
+
+    private static final ForgeConfigSpec.Builder BUILDER = new ForgeConfigSpec.Builder();
+
+    private static final ForgeConfigSpec.EnumValue<RenderMode> RENDER_MODE = BUILDER
+            .comment("How cosmetic models are drawn. VERTEX_BUFFER falls back to IMMEDIATE when a shader mod is present.")
+            .defineEnum("renderMode", RenderMode.IMMEDIATE);
+
+    private static final ForgeConfigSpec.DoubleValue LOD_DISTANCE_1 = BUILDER
+            .comment("Distance in blocks beyond which cosmetics use their first reduced level of detail")
+            .defineInRange("lodDistance1", 16.0, 0.0, 1024.0);
+
+    private static final ForgeConfigSpec.DoubleValue LOD_DISTANCE_2 = BUILDER
+            .comment("Distance in blocks beyond which cosmetics use their coarsest level of detail")
+            .defineInRange("lodDistance2", 32.0, 0.0, 1024.0);
+
+    private static final ForgeConfigSpec.DoubleValue MAX_DISTANCE = BUILDER
+            .comment("Distance in blocks beyond which cosmetics are not drawn at all")
+            .defineInRange("maxDistance", 64.0, 0.0, 1024.0);
+
+    private static final ForgeConfigSpec.BooleanValue COMPILED_MODEL_CACHE = BUILDER
+            .comment("Keep parsed and baked models in individualism/cache so unchanged files are not parsed again on the next launch")
+            .define("compiledModelCache", true);
+
+    private static final ForgeConfigSpec.BooleanValue LAZY_MODEL_LOADING = BUILDER
+            .comment("Only load model geometry the first time a cosmetic is drawn, and unload it again when unused. Takes effect on the next resource reload.")
+            .define("lazyModelLoading", false);
+
+    private static final ForgeConfigSpec.IntValue MODEL_MEMORY_BUDGET = BUILDER
+            .comment("Memory in megabytes that lazily loaded models may use before the least recently drawn ones are unloaded")
+            .defineInRange("modelMemoryBudget", 64, 1, 4096);
+
+    private static final ForgeConfigSpec.IntValue FRAME_VERTEX_BUDGET = BUILDER
+            .comment("Vertices of cosmetics drawn per frame at most. Closer cosmetics are drawn first, the rest use coarser levels of detail or are skipped. 0 for no limit.")
+            .defineInRange("frameVertexBudget", 0, 0, 100_000_000);
+
+    private static final ForgeConfigSpec.IntValue FRAME_TIME_BUDGET = BUILDER
+            .comment("Microseconds per frame cosmetics may take to draw, estimated from earlier frames. Works like frameVertexBudget. 0 for no limit.")
+            .defineInRange("frameTimeBudget", 0, 0, 1_000_000);
+
+    private static final ForgeConfigSpec.BooleanValue DETAILED_STATS = BUILDER
+            .comment("Measure the time spent on cosmetics every frame and show it with more counters on the debug screen")
+            .define("detailedStats", false);
+
+    public static final ForgeConfigSpec SPEC = BUILDER.build();
+
+    public static RenderMode renderMode = RenderMode.IMMEDIATE;
+    // Squared distances at which each coarser level of detail starts
+    public static double[] lodDistancesSqr = {16.0 * 16.0, 32.0 * 32.0};
+    public static double maxDistanceSqr = 64.0 * 64.0;
+    public static boolean compiledModelCache = true;
+    public static boolean lazyModelLoading = false;
+    public static long modelMemoryBudgetBytes = 64L * 1024 * 1024;
+    public static int frameVertexBudget = 0;
+    public static int frameTimeBudgetMicros = 0;
+    public static boolean detailedStats = false;
+
+    @SubscribeEvent
+    public static void onLoad(final ModConfigEvent event) {
+        if (event.getConfig().getSpec() != SPEC || event instanceof ModConfigEvent.Unloading) {
+            return;
+        }
+        renderMode = RENDER_MODE.get();
+        lodDistancesSqr = new double[]{square(LOD_DISTANCE_1.get()), square(LOD_DISTANCE_2.get())};
+        maxDistanceSqr = square(MAX_DISTANCE.get());
+        compiledModelCache = COMPILED_MODEL_CACHE.get();
+        lazyModelLoading = LAZY_MODEL_LOADING.get();
+        modelMemoryBudgetBytes = MODEL_MEMORY_BUDGET.get() * 1024L * 1024L;
+        frameVertexBudget = FRAME_VERTEX_BUDGET.get();
+        frameTimeBudgetMicros = FRAME_TIME_BUDGET.get();
+        detailedStats = DETAILED_STATS.get();
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+}
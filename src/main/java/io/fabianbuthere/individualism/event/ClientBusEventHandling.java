@@ -1,12 +1,11 @@
 package io.fabianbuthere.individualism.event;
 
 import io.fabianbuthere.individualism.Individualism;
-import io.fabianbuthere.individualism.client.model.CustomModelLoader;
-import io.fabianbuthere.individualism.client.model.ModelMetadataLoader;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex;
+import io.fabianbuthere.individualism.client.model.CosmeticReloadListener;
+import io.fabianbuthere.individualism.client.renderer.CosmeticAtlas;
 import io.fabianbuthere.individualism.client.renderer.PlayerModelRenderer;
-import io.fabianbuthere.individualism.item.ModItems;
-import net.minecraft.client.renderer.item.ItemProperties;
-import net.minecraft.resources.ResourceLocation;
+import io.fabianbuthere.individualism.item.ModCreativeModeTabs;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.client.event.RegisterClientReloadListenersEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
@@ -18,17 +17,13 @@ public class ClientBusEventHandling {
     @SubscribeEvent
     public static void onClientSetup(final FMLClientSetupEvent event) {
         event.enqueueWork(PlayerModelRenderer::init);
-        // TODO: Test and improve this
-        event.enqueueWork(() -> ItemProperties.register(
-                ModItems.GENERIC_HAT.get(),
-                ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "variant"),
-                (stack, level, entity, seed) -> stack.getOrCreateTag().getInt("variant")
-        ));
+        ModCreativeModeTabs.setVariantStacks(() -> CosmeticIndex.get().getVariantStacks());
     }
 
     @SubscribeEvent
     public static void onRegisterReloadListeners(final RegisterClientReloadListenersEvent event) {
-        event.registerReloadListener(CustomModelLoader.getInstance());
-        event.registerReloadListener(ModelMetadataLoader.getInstance());
+        // The atlas has to be stitched before models are applied, they look up their sprites in it
+        event.registerReloadListener(CosmeticAtlas.getInstance());
+        event.registerReloadListener(CosmeticReloadListener.getInstance());
     }
 }
@@ -1,10 +1,97 @@
 package io.fabianbuthere.individualism.event;
 
 import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.LazyModelCache;
+import io.fabianbuthere.individualism.client.renderer.CosmeticAtlas;
+import io.fabianbuthere.individualism.client.renderer.CosmeticIconCache;
+import io.fabianbuthere.individualism.client.renderer.CosmeticRenderStats;
+import io.fabianbuthere.individualism.client.renderer.PlayerCosmeticCache;
+import io.fabianbuthere.individualism.client.renderer.SyncedCosmetics;
+import io.fabianbuthere.individualism.config.ClientConfig;
+import net.minecraft.world.entity.player.Player;
 import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.client.event.CustomizeGuiOverlayEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.entity.living.LivingEquipmentChangeEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
 @Mod.EventBusSubscriber(modid = Individualism.MOD_ID, bus = Mod.EventBusSubscriber.Bus.FORGE, value = Dist.CLIENT)
 public class ClientEventHandling {
+    /**
+     * Only fired on the server, so this only reaches the cache in singleplayer and on LAN hosts.
+     * Remote players are caught by the cache noticing their replaced stacks.
+     */
+    @SubscribeEvent
+    public static void onEquipmentChange(final LivingEquipmentChangeEvent event) {
+        if (event.getEntity() instanceof Player) {
+            PlayerCosmeticCache.invalidate(event.getEntity().getUUID());
+        }
+    }
 
+    @SubscribeEvent
+    public static void onEntityLeaveLevel(final EntityLeaveLevelEvent event) {
+        if (event.getLevel().isClientSide() && event.getEntity() instanceof Player) {
+            PlayerCosmeticCache.invalidate(event.getEntity().getUUID());
+            SyncedCosmetics.remove(event.getEntity().getId());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(final LevelEvent.Unload event) {
+        if (event.getLevel().isClientSide()) {
+            PlayerCosmeticCache.clear();
+            SyncedCosmetics.clearStates();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLoggingOut(final ClientPlayerNetworkEvent.LoggingOut event) {
+        SyncedCosmetics.clear();
+    }
+
+    @SubscribeEvent
+    public static void onRenderTick(final TickEvent.RenderTickEvent event) {
+        if (event.phase == TickEvent.Phase.START && CosmeticIconCache.isCreated()) {
+            CosmeticIconCache.getInstance().beginFrame();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onDebugText(final CustomizeGuiOverlayEvent.DebugText event) {
+        event.getLeft().add(String.format("Cosmetics: %d considered, %d drawn, %d culled",
+                CosmeticRenderStats.getConsidered(), CosmeticRenderStats.getDrawn(), CosmeticRenderStats.getCulled()));
+        if (ClientConfig.detailedStats) {
+            event.getLeft().add(String.format("Cosmetic cost: %d vertices, %d render type switches, %.2f ms players, %.2f ms flush",
+                    CosmeticRenderStats.getVertices(), CosmeticRenderStats.getRenderTypeSwitches(),
+                    CosmeticRenderStats.getPlayerNanos() / 1e6, CosmeticRenderStats.getFlushNanos() / 1e6));
+        }
+
+        if (ClientConfig.frameVertexBudget > 0 || ClientConfig.frameTimeBudgetMicros > 0) {
+            long budget = CosmeticRenderStats.getBudget();
+            event.getLeft().add(String.format("Cosmetic budget: %d/%s vertices, %d degraded, %d skipped",
+                    CosmeticRenderStats.getBudgetUsed(), budget == Long.MAX_VALUE ? "unlimited" : Long.toString(budget),
+                    CosmeticRenderStats.getDegraded(), CosmeticRenderStats.getSkipped()));
+        }
+
+        CosmeticAtlas atlas = CosmeticAtlas.getInstance();
+        event.getLeft().add(String.format("Cosmetic atlas: %dx%d, %d%% used",
+                atlas.getWidth(), atlas.getHeight(), Math.round(atlas.getUtilization() * 100)));
+
+        if (CosmeticIconCache.isCreated()) {
+            CosmeticIconCache icons = CosmeticIconCache.getInstance();
+            event.getLeft().add(String.format("Cosmetic icons: %d/%d tiles, %d rendered",
+                    icons.getTileCount(), icons.getCapacity(), icons.getRenders()));
+        }
+
+        if (ClientConfig.lazyModelLoading) {
+            LazyModelCache cache = LazyModelCache.getInstance();
+            event.getLeft().add(String.format("Cosmetic models: %d resident, %d KB, %d%% hits, %d evictions",
+                    cache.getResidentCount(), cache.getResidentBytes() / 1024, Math.round(cache.getHitRate() * 100),
+                    cache.getEvictions()));
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package io.fabianbuthere.individualism.gametest;
+
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.Tesselator;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex.PreparedCosmetic;
+import io.fabianbuthere.individualism.client.model.CustomModel;
+import io.fabianbuthere.individualism.client.renderer.CosmeticScheduler;
+import io.fabianbuthere.individualism.client.renderer.PlayerCosmeticCache;
+import io.fabianbuthere.individualism.client.renderer.PlayerModelRenderer;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Runs the cosmetic part of rendering players for a number of simulated frames, into a buffer that is
+ * discarded after each frame, to measure the CPU time cosmetics cost per frame without drawing anything.
+ * Also runs the frame budget scheduler on its own for the game tests.
+ */
+public final class CosmeticFrameProbe {
+    private CosmeticFrameProbe() {
+    }
+
+    /**
+     * @param meanNanos mean time of one frame with all players
+     * @param p99Nanos  99th percentile of the frame times
+     */
+    public record Result(int frames, long verticesPerFrame, long meanNanos, long p99Nanos, long maxNanos) {
+    }
+
+    /**
+     * Run on the render thread between two frames and wait for the result, so the batcher is never collecting
+     */
+    public static Result runBetweenFrames(CosmeticIndex index, List<? extends Player> players, int frames) {
+        return Minecraft.getInstance().submit(() -> run(index, players, frames)).join();
+    }
+
+    /**
+     * Schedule one cosmetic per player at fixed distances under a vertex budget for a number of frames,
+     * on the render thread between two frames
+     *
+     * @return per frame, whether the cosmetic of each player was drawn
+     */
+    public static boolean[][] scheduleBetweenFrames(CustomModel model, double[] distancesSqr, int frames, int vertexBudget) {
+        return Minecraft.getInstance().submit(() -> schedule(model, distancesSqr, frames, vertexBudget)).join();
+    }
+
+    private static boolean[][] schedule(CustomModel model, double[] distancesSqr, int frames, int vertexBudget) {
+        UUID[] playerIds = new UUID[distancesSqr.length];
+        for (int i = 0; i < playerIds.length; i++) {
+            playerIds[i] = UUID.randomUUID();
+        }
+        PoseStack.Pose pose = new PoseStack().last();
+        boolean[][] drawn = new boolean[frames][distancesSqr.length];
+        for (int frame = 0; frame < frames; frame++) {
+            for (int i = 0; i < playerIds.length; i++) {
+                // The light carries the player index through to the sink
+                CosmeticScheduler.add(model, 0, pose, i, playerIds[i], distancesSqr[i]);
+            }
+            boolean[] frameDrawn = drawn[frame];
+            CosmeticScheduler.schedule((drawnModel, lod, drawnPose, normal, packedLight) -> frameDrawn[packedLight] = true, vertexBudget);
+        }
+        return drawn;
+    }
+
+    private static Result run(CosmeticIndex index, List<? extends Player> players, int frames) {
+        // Free between frames, every entity render type uses the same vertex format
+        BufferBuilder builder = Tesselator.getInstance().getBuilder();
+        MultiBufferSource bufferSource = renderType -> builder;
+        PoseStack poseStack = new PoseStack();
+        long[] frameNanos = new long[frames];
+        long vertices = 0;
+
+        for (int frame = 0; frame < frames; frame++) {
+            builder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.NEW_ENTITY);
+            long start = System.nanoTime();
+            for (Player player : players) {
+                PreparedCosmetic[] cosmetics = PlayerCosmeticCache.get(player, index);
+                if (cosmetics.length > 0) {
+                    // Closest level of detail and no culling, the worst case for every player
+                    PlayerModelRenderer.renderCosmetics(cosmetics, poseStack, bufferSource, 0, LightTexture.FULL_BRIGHT,
+                            null, player.getX(), player.getY(), player.getZ(), player.getUUID(), 0);
+                }
+            }
+            frameNanos[frame] = System.nanoTime() - start;
+
+            BufferBuilder.RenderedBuffer rendered = builder.endOrDiscardIfEmpty();
+            if (rendered != null) {
+                vertices += rendered.drawState().vertexCount();
+                rendered.release();
+            }
+        }
+
+        for (Player player : players) {
+            PlayerCosmeticCache.invalidate(player.getUUID());
+        }
+
+        if (frames == 0) {
+            return new Result(0, 0, 0, 0, 0);
+        }
+        long total = 0;
+        for (long nanos : frameNanos) {
+            total += nanos;
+        }
+        Arrays.sort(frameNanos);
+        return new Result(frames, vertices / frames, total / frames,
+                frameNanos[Math.min(frames - 1, (int) Math.ceil(frames * 0.99) - 1)], frameNanos[frames - 1]);
+    }
+}
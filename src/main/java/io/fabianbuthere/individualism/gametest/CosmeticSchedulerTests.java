@@ -0,0 +1,76 @@
+package io.fabianbuthere.individualism.gametest;
+
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.CustomModel;
+import io.fabianbuthere.individualism.client.model.CustomModel.ModelElement;
+import io.fabianbuthere.individualism.client.model.CustomModel.ModelFace;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.fml.loading.FMLEnvironment;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+import org.joml.Vector3f;
+
+/**
+ * The per-frame budget scheduler with a fixed set of players. It only runs on the client, so these
+ * pass trivially on a dedicated server.
+ */
+@GameTestHolder(Individualism.MOD_ID)
+@PrefixGameTestTemplate(false)
+public class CosmeticSchedulerTests {
+    private static final String TEMPLATE = "empty";
+    private static final double[] DISTANCES = {4, 8, 16, 24, 32, 48};
+    private static final int DRAWN_PLAYERS = 3;
+    private static final int FRAMES = 200;
+
+    /**
+     * Players swap in and out in runs of several frames and all of them are drawn at some point
+     */
+    @GameTest(template = TEMPLATE)
+    public static void budgetDoesNotFlicker(GameTestHelper helper) {
+        if (FMLEnvironment.dist != Dist.CLIENT) {
+            helper.succeed();
+            return;
+        }
+
+        CustomModel model = new CustomModel(ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "scheduler_test"),
+                ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "textures/scheduler_test.png"));
+        ModelElement cube = new ModelElement("cube", new Vector3f(0, 0, 0), new Vector3f(4, 4, 4), new Vector3f(8, 8, 8), 0, null);
+        for (ModelFace.Direction direction : ModelFace.Direction.values()) {
+            cube.addFace(new ModelFace(direction, 0, 0, 16, 16));
+        }
+        model.addElement(cube);
+        model.bake();
+
+        double[] distancesSqr = new double[DISTANCES.length];
+        for (int i = 0; i < distancesSqr.length; i++) {
+            distancesSqr[i] = DISTANCES[i] * DISTANCES[i];
+        }
+        boolean[][] drawn = DistExecutor.unsafeCallWhenOn(Dist.CLIENT, () -> () -> CosmeticFrameProbe.scheduleBetweenFrames(
+                model, distancesSqr, FRAMES, DRAWN_PLAYERS * model.getVertexCount(0)));
+
+        for (int player = 0; player < DISTANCES.length; player++) {
+            boolean everDrawn = drawn[0][player];
+            for (int frame = 1; frame < FRAMES - 1; frame++) {
+                boolean state = drawn[frame][player];
+                everDrawn |= state;
+                helper.assertFalse(drawn[frame - 1][player] != state && drawn[frame + 1][player] != state,
+                        "Player " + player + " was " + (state ? "drawn" : "skipped") + " for a single frame at frame " + frame);
+            }
+            helper.assertTrue(everDrawn, "Player " + player + " was never drawn");
+        }
+
+        for (int frame = 0; frame < FRAMES; frame++) {
+            int count = 0;
+            for (boolean state : drawn[frame]) {
+                count += state ? 1 : 0;
+            }
+            helper.assertTrue(count == DRAWN_PLAYERS, "Drew " + count + " players in frame " + frame + " instead of " + DRAWN_PLAYERS);
+        }
+
+        helper.succeed();
+    }
+}
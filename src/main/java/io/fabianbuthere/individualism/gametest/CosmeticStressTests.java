@@ -0,0 +1,185 @@
+package io.fabianbuthere.individualism.gametest;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.CosmeticIndex;
+import io.fabianbuthere.individualism.client.model.CustomModel;
+import io.fabianbuthere.individualism.client.model.CustomModelLoader;
+import io.fabianbuthere.individualism.client.model.ModelMetadata;
+import io.fabianbuthere.individualism.client.model.ModelMetadataLoader;
+import io.fabianbuthere.individualism.client.model.ParallelJsonLoader;
+import io.fabianbuthere.individualism.item.ModItems;
+import io.fabianbuthere.individualism.item.custom.WearableItem;
+import io.fabianbuthere.individualism.network.CosmeticSync;
+import net.minecraft.Util;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.packs.PackType;
+import net.minecraft.server.packs.PathPackResources;
+import net.minecraft.server.packs.resources.MultiPackResourceManager;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.fml.loading.FMLEnvironment;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * End to end scenarios on a synthetic cosmetic pack. The size of the stress scenario is set with the
+ * system properties below, its results are logged and written to individualism/stress/report.json.
+ * Run all of them with the gameTestServer run config, or with /test in a client run to include
+ * the per-frame rendering cost.
+ */
+@GameTestHolder(Individualism.MOD_ID)
+@PrefixGameTestTemplate(false)
+public class CosmeticStressTests {
+    private static final String TEMPLATE = "empty";
+
+    private static final int MODELS = Integer.getInteger("individualism.stress.models", 500);
+    private static final int ELEMENTS = Integer.getInteger("individualism.stress.elements", 24);
+    private static final int VARIANTS = Integer.getInteger("individualism.stress.variants", 16);
+    private static final int PLAYERS = Integer.getInteger("individualism.stress.players", 50);
+    private static final int FRAMES = Integer.getInteger("individualism.stress.frames", 120);
+    private static final long SEED = Long.getLong("individualism.stress.seed", 42L);
+
+    /**
+     * Load the pack the way a resource reload does, then dress up mock players and render their cosmetics
+     */
+    @GameTest(template = TEMPLATE, batch = "stress")
+    public static void reloadAndRender(GameTestHelper helper) {
+        Path directory = FMLPaths.GAMEDIR.get().resolve(Individualism.MOD_ID).resolve("stress");
+        Path pack;
+        try {
+            pack = SyntheticCosmeticPack.write(directory.resolve(MODELS + "x" + ELEMENTS + "_" + VARIANTS),
+                    MODELS, ELEMENTS, VARIANTS, SEED);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write the synthetic pack", e);
+        }
+
+        CosmeticIndex index;
+        long reloadNanos;
+        long peakHeapBytes;
+        try (MultiPackResourceManager resources = new MultiPackResourceManager(PackType.CLIENT_RESOURCES,
+                List.of(new PathPackResources("individualism_stress", pack, false)))) {
+            resetPeakHeap();
+            long start = System.nanoTime();
+            CompletableFuture<ParallelJsonLoader.Prepared<CustomModel>> models =
+                    CustomModelLoader.getInstance().loadDetached(resources, Util.backgroundExecutor());
+            CompletableFuture<ParallelJsonLoader.Prepared<ModelMetadata>> metadata =
+                    ModelMetadataLoader.getInstance().loadDetached(resources, Util.backgroundExecutor());
+            index = CosmeticIndex.build(models.join().values(), metadata.join().values());
+            reloadNanos = System.nanoTime() - start;
+            peakHeapBytes = getPeakHeap();
+        }
+        helper.assertTrue(index.getModels().size() == MODELS,
+                "Expected " + MODELS + " models, loaded " + index.getModels().size());
+        helper.assertTrue(index.getVariantStacks().size() == Math.min(MODELS, VARIANTS),
+                "Expected " + Math.min(MODELS, VARIANTS) + " variants, found " + index.getVariantStacks().size());
+
+        Random random = new Random(SEED);
+        List<ItemStack> stacks = index.getVariantStacks();
+        List<Player> players = new ArrayList<>(PLAYERS);
+        for (int i = 0; i < PLAYERS; i++) {
+            Player player = helper.makeMockPlayer();
+            player.setItemSlot(EquipmentSlot.HEAD, stacks.get(random.nextInt(stacks.size())).copy());
+            players.add(player);
+        }
+
+        JsonObject report = new JsonObject();
+        report.addProperty("models", MODELS);
+        report.addProperty("elementsPerModel", ELEMENTS);
+        report.addProperty("variants", VARIANTS);
+        report.addProperty("players", PLAYERS);
+        report.addProperty("reloadMillis", reloadNanos / 1_000_000.0);
+        report.addProperty("peakHeapBytes", peakHeapBytes);
+
+        // Rendering needs the client, a dedicated server only measures loading
+        if (FMLEnvironment.dist == Dist.CLIENT) {
+            CosmeticFrameProbe.Result frames = DistExecutor.unsafeCallWhenOn(Dist.CLIENT,
+                    () -> () -> CosmeticFrameProbe.runBetweenFrames(index, players, FRAMES));
+            report.addProperty("frames", frames.frames());
+            report.addProperty("verticesPerFrame", frames.verticesPerFrame());
+            report.addProperty("frameMeanMicros", frames.meanNanos() / 1000.0);
+            report.addProperty("frameP99Micros", frames.p99Nanos() / 1000.0);
+            report.addProperty("frameMaxMicros", frames.maxNanos() / 1000.0);
+        }
+
+        Individualism.LOGGER.info("Cosmetic stress test: {}", report);
+        try {
+            Files.writeString(directory.resolve("report.json"),
+                    new GsonBuilder().setPrettyPrinting().create().toJson(report), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Individualism.LOGGER.warn("Failed to write the stress test report", e);
+        }
+
+        helper.succeed();
+    }
+
+    /**
+     * Only slots whose item or variant changed are sent, and nothing is sent when a player is marked
+     * dirty without an actual change
+     */
+    @GameTest(template = TEMPLATE)
+    public static void syncSendsOnlyChangedSlots(GameTestHelper helper) {
+        MinecraftServer server = helper.getLevel().getServer();
+        ServerPlayer player = helper.makeMockServerPlayerInLevel();
+        CosmeticSync.flush(server);
+
+        player.setItemSlot(EquipmentSlot.HEAD, WearableItem.withVariant(ModItems.GENERIC_HAT.get(), "top_hat"));
+        CosmeticSync.markDirty(player);
+        CosmeticSync.flush(server);
+        helper.assertTrue(CosmeticSync.getChangedSlots(player) == 1,
+                "Expected only the head slot to be sent, got " + CosmeticSync.getChangedSlots(player));
+
+        player.setItemSlot(EquipmentSlot.HEAD, WearableItem.withVariant(ModItems.GENERIC_HAT.get(), "top_hat"));
+        CosmeticSync.markDirty(player);
+        CosmeticSync.flush(server);
+        helper.assertTrue(CosmeticSync.getChangedSlots(player) == 0, "An equal stack should not be sent again");
+
+        player.setItemSlot(EquipmentSlot.HEAD, WearableItem.withVariant(ModItems.GENERIC_HAT.get(), "other"));
+        CosmeticSync.markDirty(player);
+        CosmeticSync.flush(server);
+        helper.assertTrue(CosmeticSync.getChangedSlots(player) == 1, "A changed variant should be sent");
+
+        helper.succeed();
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Sum of the peak usage of all heap pools. The pools peak at different times, so this is an upper bound.
+     */
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
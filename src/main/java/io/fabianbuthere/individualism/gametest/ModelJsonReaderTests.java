@@ -0,0 +1,48 @@
+package io.fabianbuthere.individualism.gametest;
+
+import com.google.gson.stream.JsonReader;
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.ModelJsonReader;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+/**
+ * Metadata written with numeric variants, as older cosmetic files do
+ */
+@GameTestHolder(Individualism.MOD_ID)
+@PrefixGameTestTemplate(false)
+public class ModelJsonReaderTests {
+    private static final String TEMPLATE = "empty";
+    private static final ResourceLocation MODEL_ID = ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "reader_test");
+
+    @GameTest(template = TEMPLATE)
+    public static void zeroVariantIsNoVariant(GameTestHelper helper) {
+        String variant = readVariant("0");
+        helper.assertTrue(variant.isEmpty(), "Variant 0 was read as '" + variant + "' instead of no variant");
+        helper.succeed();
+    }
+
+    @GameTest(template = TEMPLATE)
+    public static void numericVariantsAreNamedByValue(GameTestHelper helper) {
+        helper.assertTrue(readVariant("1").equals("1"), "Variant 1 was read as '" + readVariant("1") + "'");
+        helper.assertTrue(readVariant("1.0").equals("1"), "Variant 1.0 was read as '" + readVariant("1.0") + "'");
+        helper.assertTrue(readVariant("\"top_hat\"").equals("top_hat"), "The string variant was not kept");
+        helper.succeed();
+    }
+
+    private static String readVariant(String json) {
+        String metadata = "{\"variant\": " + json + ", \"playerTranslation\": [0, 0, 0]}";
+        try (JsonReader reader = new JsonReader(new StringReader(metadata))) {
+            return ModelJsonReader.readMetadata(MODEL_ID, reader).variant();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.fabianbuthere.individualism.gametest;
+
+import io.fabianbuthere.individualism.Individualism;
+import io.fabianbuthere.individualism.client.model.CustomModel;
+import io.fabianbuthere.individualism.client.model.CustomModel.ModelElement;
+import io.fabianbuthere.individualism.client.model.CustomModel.ModelFace;
+import io.fabianbuthere.individualism.client.model.ModelOptimizer;
+import io.fabianbuthere.individualism.client.model.ModelTransparency;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+import org.joml.Vector3f;
+
+import java.util.List;
+
+/**
+ * Hidden face removal of {@link ModelOptimizer} on a box with another box directly in front of its east face
+ */
+@GameTestHolder(Individualism.MOD_ID)
+@PrefixGameTestTemplate(false)
+public class ModelOptimizerTests {
+    private static final String TEMPLATE = "empty";
+    private static final ResourceLocation MODEL_ID = ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "optimizer_test");
+    private static final List<ResourceLocation> TEXTURES = List.of(
+            ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "textures/solid.png"),
+            ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "textures/cutout.png"));
+    private static final ModelTransparency[] CLASSIFIED = {ModelTransparency.SOLID, ModelTransparency.CUTOUT};
+
+    @GameTest(template = TEMPLATE)
+    public static void keepsFaceBehindOpenBox(GameTestHelper helper) {
+        CustomModel model = boxes(0, ModelFace.Direction.EAST);
+        ModelOptimizer.optimize(model, CLASSIFIED);
+        helper.assertTrue(hasBackEastFace(model), "The east face behind an open box was removed");
+
+        model = boxes(0, ModelFace.Direction.EAST);
+        ModelOptimizer.optimize(model);
+        helper.assertTrue(hasBackEastFace(model), "The east face behind an open box was removed without transparencies");
+        helper.succeed();
+    }
+
+    @GameTest(template = TEMPLATE)
+    public static void keepsFaceBehindCutoutBox(GameTestHelper helper) {
+        CustomModel model = boxes(1, null);
+        ModelOptimizer.optimize(model, CLASSIFIED);
+        helper.assertTrue(hasBackEastFace(model), "The east face behind a cutout box was removed");
+        helper.succeed();
+    }
+
+    /**
+     * Models are optimized before their textures are classified, so any box might be see-through
+     */
+    @GameTest(template = TEMPLATE)
+    public static void keepsFaceBehindCutoutBoxWithoutTransparencies(GameTestHelper helper) {
+        CustomModel model = boxes(1, null);
+        ModelOptimizer.optimize(model);
+        helper.assertTrue(hasBackEastFace(model), "The east face behind a cutout box was removed without transparencies");
+        helper.succeed();
+    }
+
+    @GameTest(template = TEMPLATE)
+    public static void removesFaceBehindSolidBox(GameTestHelper helper) {
+        CustomModel model = boxes(0, null);
+        ModelOptimizer.optimize(model, CLASSIFIED);
+        helper.assertFalse(hasBackEastFace(model), "The east face behind a closed solid box was kept");
+        helper.succeed();
+    }
+
+    /**
+     * A closed box from 0 to 4 and a box from 4 to 8 on x in front of its east face
+     *
+     * @param frontTexture the texture of every face of the front box
+     * @param missing      a side the front box has no face on, or null if it is closed
+     */
+    private static CustomModel boxes(int frontTexture, ModelFace.Direction missing) {
+        CustomModel model = new CustomModel(MODEL_ID, TEXTURES, new float[3]);
+        model.addElement(box("back", new Vector3f(0, 0, 0), new Vector3f(4, 4, 4), 0, null));
+        model.addElement(box("front", new Vector3f(4, 0, 0), new Vector3f(8, 4, 4), frontTexture, missing));
+        return model;
+    }
+
+    private static ModelElement box(String name, Vector3f from, Vector3f to, int texture, ModelFace.Direction missing) {
+        ModelElement element = new ModelElement(name, from, to, new Vector3f(8, 8, 8), 0, null);
+        for (ModelFace.Direction direction : ModelFace.Direction.values()) {
+            if (direction != missing) {
+                // Full texture on every face, so no two faces continue each other's UVs and merge
+                element.addFace(new ModelFace(direction, 0, 0, 16, 16, texture));
+            }
+        }
+        return element;
+    }
+
+    private static boolean hasBackEastFace(CustomModel model) {
+        for (ModelElement element : model.getElements()) {
+            if (element.getFrom().x() != 0 || element.getTo().x() != 4) {
+                continue;
+            }
+            for (ModelFace face : element.getFaces()) {
+                if (face.getDirection() == ModelFace.Direction.EAST) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
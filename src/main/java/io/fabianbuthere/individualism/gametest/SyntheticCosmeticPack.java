@@ -0,0 +1,86 @@
+package io.fabianbuthere.individualism.gametest;
+
+import io.fabianbuthere.individualism.Individualism;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates resource packs full of cosmetics for stress testing. The same parameters always give
+ * the same files.
+ */
+public final class SyntheticCosmeticPack {
+    public static final String MODEL_PREFIX = "stress_";
+    private static final String[] FACES = {"north", "east", "south", "west", "up", "down"};
+
+    private SyntheticCosmeticPack() {
+    }
+
+    /**
+     * Write a pack with the given number of hats, each made of the given number of cubes and spread
+     * evenly over the given number of variants
+     *
+     * @return the root of the pack
+     */
+    public static Path write(Path directory, int models, int elements, int variants, long seed) throws IOException {
+        Path assets = directory.resolve("assets").resolve(Individualism.MOD_ID);
+        Path modelDirectory = Files.createDirectories(assets.resolve("models").resolve("custom"));
+        Path metadataDirectory = Files.createDirectories(assets.resolve("metadata"));
+
+        Files.writeString(directory.resolve("pack.mcmeta"),
+                "{\"pack\":{\"description\":\"Individualism stress test\",\"pack_format\":15}}", StandardCharsets.UTF_8);
+
+        for (int i = 0; i < models; i++) {
+            String name = MODEL_PREFIX + i;
+            Files.writeString(modelDirectory.resolve(name + ".json"), modelJson(elements, seed + i), StandardCharsets.UTF_8);
+            Files.writeString(metadataDirectory.resolve(name + ".json"),
+                    metadataJson("Stress " + i, "individualism:generic_hat", "stress_" + i % variants), StandardCharsets.UTF_8);
+        }
+        return directory;
+    }
+
+    public static String modelJson(int elements, long seed) {
+        Random random = new Random(seed);
+        StringBuilder json = new StringBuilder(elements * 600);
+        json.append("{\"textures\":{\"0\":\"individualism:armor/top_hat\"},\"elements\":[");
+        for (int i = 0; i < elements; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            float x = random.nextInt(12);
+            float y = random.nextInt(28);
+            float z = random.nextInt(12);
+            json.append("{\"name\":\"cube").append(i).append("\",");
+            json.append(String.format(Locale.ROOT, "\"from\":[%.1f,%.1f,%.1f],\"to\":[%.1f,%.1f,%.1f],",
+                    x, y, z, x + 1 + random.nextInt(4), y + 1 + random.nextInt(4), z + 1 + random.nextInt(4)));
+            if (random.nextInt(4) == 0) {
+                json.append(String.format(Locale.ROOT, "\"rotation\":{\"angle\":%.1f,\"axis\":\"y\",\"origin\":[8,8,8]},",
+                        (random.nextInt(5) - 2) * 22.5f));
+            }
+            json.append("\"faces\":{");
+            for (int face = 0; face < FACES.length; face++) {
+                if (face > 0) {
+                    json.append(',');
+                }
+                int u = random.nextInt(12);
+                int v = random.nextInt(12);
+                json.append('"').append(FACES[face]).append("\":{\"uv\":[")
+                        .append(u).append(',').append(v).append(',').append(u + 4).append(',').append(v + 4)
+                        .append("],\"texture\":\"#0\"}");
+            }
+            json.append("}}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    public static String metadataJson(String name, String item, String variant) {
+        return String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"slot\":\"head\",\"item\":\"%s\",\"variant\":\"%s\",\"playerTranslation\":[-8,28,-8]}",
+                name, item, variant);
+    }
+}
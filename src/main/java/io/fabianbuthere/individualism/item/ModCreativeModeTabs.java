@@ -4,10 +4,16 @@ import io.fabianbuthere.individualism.Individualism;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.network.chat.Component;
 import net.minecraft.world.item.CreativeModeTab;
+import net.minecraft.world.item.CreativeModeTabs;
+import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.registries.DeferredRegister;
 import net.minecraftforge.registries.RegistryObject;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
 public class ModCreativeModeTabs {
     public static final DeferredRegister<CreativeModeTab> CREATIVE_MODE_TABS = DeferredRegister.create(Registries.CREATIVE_MODE_TAB, Individualism.MOD_ID);
 
@@ -17,11 +23,27 @@ public class ModCreativeModeTabs {
                     .icon(() -> ModItems.GENERIC_HAT.get().getDefaultInstance())
                     .displayItems((parameters, output) -> {
                         output.accept(ModItems.GENERIC_HAT.get());
-                        // TODO: Populate at resource reload
+                        output.acceptAll(variantStacks.get());
                     })
                     .build()
     );
 
+    // Cosmetics are only known on the client, which provides one stack per variant from its last resource reload
+    private static Supplier<Collection<ItemStack>> variantStacks = List::of;
+
+    public static void setVariantStacks(Supplier<Collection<ItemStack>> supplier) {
+        variantStacks = supplier;
+    }
+
+    /**
+     * Rebuild the tab and the search tab after the variant stacks changed. Vanilla only rebuilds tabs when
+     * the display parameters change, which a resource reload does not.
+     */
+    public static void rebuildContents(CreativeModeTab.ItemDisplayParameters parameters) {
+        INDIVIDUALISM_TAB.get().buildContents(parameters);
+        CreativeModeTabs.searchTab().buildContents(parameters);
+    }
+
     public static void register(IEventBus eventBus) {
         CREATIVE_MODE_TABS.register(eventBus);
     }
@@ -1,17 +1,29 @@
 package io.fabianbuthere.individualism.item.custom;
 
+import io.fabianbuthere.individualism.client.renderer.CosmeticItemRenderer;
+import net.minecraft.client.renderer.BlockEntityWithoutLevelRenderer;
+import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.entity.EquipmentSlot;
 import net.minecraft.world.item.ArmorItem;
 import net.minecraft.world.item.Equipable;
 import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.client.extensions.common.IClientItemExtensions;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.function.Consumer;
+
 /**
  * An item which can be worn in a specific armor slot.
- * Does not provide any armor properties or rendering behavior.
+ * Does not provide any armor properties. In hand and in GUIs it is drawn as the cosmetics it puts on,
+ * see {@link CosmeticItemRenderer}.
  */
-// TODO: Make this have no rendering behavior
 public class WearableItem extends Item implements Equipable {
+    /**
+     * Stacks store the name of their variant, not its numeric id, since ids are only assigned per resource reload
+     */
+    public static final String VARIANT_TAG = "variant";
+
     private final ArmorItem.Type type;
     private final EquipmentSlot equipmentSlot;
 
@@ -30,4 +42,28 @@ public class WearableItem extends Item implements Equipable {
     public @NotNull EquipmentSlot getEquipmentSlot() {
         return equipmentSlot;
     }
+
+    @Override
+    public void initializeClient(@NotNull Consumer<IClientItemExtensions> consumer) {
+        consumer.accept(new IClientItemExtensions() {
+            @Override
+            public BlockEntityWithoutLevelRenderer getCustomRenderer() {
+                return CosmeticItemRenderer.getInstance();
+            }
+        });
+    }
+
+    /**
+     * Get the variant a stack was created with, or an empty string. Does not create or change the tag.
+     */
+    public static String getVariant(ItemStack stack) {
+        CompoundTag tag = stack.getTag();
+        return tag == null ? "" : tag.getString(VARIANT_TAG);
+    }
+
+    public static ItemStack withVariant(Item item, String variant) {
+        ItemStack stack = new ItemStack(item);
+        stack.getOrCreateTag().putString(VARIANT_TAG, variant);
+        return stack;
+    }
 }
@@ -0,0 +1,65 @@
+package io.fabianbuthere.individualism.network;
+
+import io.fabianbuthere.individualism.client.renderer.SyncedCosmetics;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The cosmetic slots of several players that changed during one server tick. Per player only the changed
+ * slots are written: a bitmask of slots followed by the item's registry id and the server variant id of
+ * each set slot, all as varints.
+ */
+public record CosmeticStatePacket(List<Delta> deltas) {
+    public static final int SLOT_COUNT = 4;
+    public static final int ALL_SLOTS = (1 << SLOT_COUNT) - 1;
+
+    /**
+     * @param items    registry id of the item per slot, only meaningful for slots in the mask
+     * @param variants server variant id per slot, only meaningful for slots in the mask
+     */
+    public record Delta(int entityId, int changedSlots, int[] items, int[] variants) {
+    }
+
+    public void encode(FriendlyByteBuf buf) {
+        buf.writeVarInt(deltas.size());
+        for (Delta delta : deltas) {
+            buf.writeVarInt(delta.entityId());
+            buf.writeByte(delta.changedSlots());
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                if ((delta.changedSlots() & 1 << slot) != 0) {
+                    buf.writeVarInt(delta.items()[slot]);
+                    buf.writeVarInt(delta.variants()[slot]);
+                }
+            }
+        }
+    }
+
+    public static CosmeticStatePacket decode(FriendlyByteBuf buf) {
+        int count = buf.readVarInt();
+        List<Delta> deltas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int entityId = buf.readVarInt();
+            int changedSlots = buf.readUnsignedByte() & ALL_SLOTS;
+            int[] items = new int[SLOT_COUNT];
+            int[] variants = new int[SLOT_COUNT];
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                if ((changedSlots & 1 << slot) != 0) {
+                    items[slot] = buf.readVarInt();
+                    variants[slot] = buf.readVarInt();
+                }
+            }
+            deltas.add(new Delta(entityId, changedSlots, items, variants));
+        }
+        return new CosmeticStatePacket(deltas);
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> context) {
+        DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> SyncedCosmetics.apply(deltas));
+    }
+}
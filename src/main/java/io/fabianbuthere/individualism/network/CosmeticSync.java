@@ -0,0 +1,216 @@
+package io.fabianbuthere.individualism.network;
+
+import io.fabianbuthere.individualism.item.custom.WearableItem;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Server side of the cosmetic sync. Equipment changes only mark a player dirty, once per tick the dirty
+ * players are compared against what was last sent and the changed slots are sent to the player and every
+ * player tracking them, one packet per recipient. Variant names are interned to ids for the lifetime of
+ * the server, new names are announced before the state that uses them. Only used on the server thread.
+ */
+public final class CosmeticSync {
+    // Same order as the slots of CosmeticStatePacket
+    private static final EquipmentSlot[] SLOTS = {EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET};
+
+    private static final List<String> variantNames = new ArrayList<>(List.of(""));
+    private static final Object2IntMap<String> variantIds = new Object2IntOpenHashMap<>();
+    private static int announcedVariants = 1;
+
+    // Last sent item ids followed by variant ids, per player
+    private static final Map<UUID, int[]> sent = new HashMap<>();
+    private static final Set<UUID> dirty = new LinkedHashSet<>();
+    // Target to the players tracking it, and viewer to the targets whose full state it still needs
+    private static final Map<UUID, Set<UUID>> trackers = new HashMap<>();
+    private static final Map<UUID, Set<UUID>> pendingFull = new HashMap<>();
+    // Slots sent as changed by the last flush, for tests
+    private static final Object2IntMap<UUID> lastChanged = new Object2IntOpenHashMap<>();
+
+    private CosmeticSync() {
+    }
+
+    public static void markDirty(ServerPlayer player) {
+        dirty.add(player.getUUID());
+    }
+
+    /**
+     * Send the whole variant table and the player's own state, after login or when the player was recreated
+     */
+    public static void onJoin(ServerPlayer player) {
+        ModNetwork.sendTo(player, new CosmeticVariantsPacket(1, List.copyOf(variantNames.subList(1, announcedVariants))));
+        onRespawn(player);
+    }
+
+    /**
+     * The client dropped everything it knew about the player along with its old level
+     */
+    public static void onRespawn(ServerPlayer player) {
+        // Restored equipment does not fire change events
+        dirty.add(player.getUUID());
+        queueFull(player, player);
+    }
+
+    public static void onStartTracking(ServerPlayer viewer, ServerPlayer target) {
+        trackers.computeIfAbsent(target.getUUID(), id -> new HashSet<>()).add(viewer.getUUID());
+        queueFull(viewer, target);
+    }
+
+    public static void onStopTracking(ServerPlayer viewer, ServerPlayer target) {
+        Set<UUID> viewers = trackers.get(target.getUUID());
+        if (viewers != null) {
+            viewers.remove(viewer.getUUID());
+        }
+        Set<UUID> targets = pendingFull.get(viewer.getUUID());
+        if (targets != null) {
+            targets.remove(target.getUUID());
+        }
+    }
+
+    public static void onLeave(ServerPlayer player) {
+        UUID id = player.getUUID();
+        sent.remove(id);
+        dirty.remove(id);
+        trackers.remove(id);
+        pendingFull.remove(id);
+        for (Set<UUID> viewers : trackers.values()) {
+            viewers.remove(id);
+        }
+    }
+
+    public static void reset() {
+        variantNames.subList(1, variantNames.size()).clear();
+        variantIds.clear();
+        announcedVariants = 1;
+        sent.clear();
+        dirty.clear();
+        trackers.clear();
+        pendingFull.clear();
+        lastChanged.clear();
+    }
+
+    private static void queueFull(ServerPlayer viewer, ServerPlayer target) {
+        pendingFull.computeIfAbsent(viewer.getUUID(), id -> new LinkedHashSet<>()).add(target.getUUID());
+    }
+
+    /**
+     * Send everything that changed during this tick
+     */
+    public static void flush(MinecraftServer server) {
+        lastChanged.clear();
+        if (dirty.isEmpty() && pendingFull.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, List<CosmeticStatePacket.Delta>> batches = new HashMap<>();
+
+        for (UUID id : dirty) {
+            ServerPlayer player = server.getPlayerList().getPlayer(id);
+            if (player == null) {
+                continue;
+            }
+            int[] current = capture(player);
+            int[] previous = sent.get(id);
+            int changed = 0;
+            for (int slot = 0; slot < SLOTS.length; slot++) {
+                if (previous == null || previous[slot] != current[slot] || previous[SLOTS.length + slot] != current[SLOTS.length + slot]) {
+                    changed |= 1 << slot;
+                }
+            }
+            sent.put(id, current);
+            if (changed == 0) {
+                continue;
+            }
+            lastChanged.put(id, changed);
+
+            CosmeticStatePacket.Delta delta = toDelta(player, changed, current);
+            batches.computeIfAbsent(id, viewer -> new ArrayList<>()).add(delta);
+            for (UUID viewer : trackers.getOrDefault(id, Set.of())) {
+                batches.computeIfAbsent(viewer, v -> new ArrayList<>()).add(delta);
+            }
+        }
+        dirty.clear();
+
+        for (Map.Entry<UUID, Set<UUID>> entry : pendingFull.entrySet()) {
+            for (UUID targetId : entry.getValue()) {
+                ServerPlayer target = server.getPlayerList().getPlayer(targetId);
+                if (target == null) {
+                    continue;
+                }
+                int[] current = sent.computeIfAbsent(targetId, id -> capture(target));
+                batches.computeIfAbsent(entry.getKey(), viewer -> new ArrayList<>())
+                        .add(toDelta(target, CosmeticStatePacket.ALL_SLOTS, current));
+            }
+        }
+        pendingFull.clear();
+
+        // Names interned while capturing have to arrive before the state referring to them
+        if (announcedVariants < variantNames.size()) {
+            CosmeticVariantsPacket names = new CosmeticVariantsPacket(announcedVariants,
+                    List.copyOf(variantNames.subList(announcedVariants, variantNames.size())));
+            announcedVariants = variantNames.size();
+            for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+                ModNetwork.sendTo(player, names);
+            }
+        }
+
+        for (Map.Entry<UUID, List<CosmeticStatePacket.Delta>> batch : batches.entrySet()) {
+            ServerPlayer viewer = server.getPlayerList().getPlayer(batch.getKey());
+            if (viewer != null) {
+                ModNetwork.sendTo(viewer, new CosmeticStatePacket(batch.getValue()));
+            }
+        }
+    }
+
+    /**
+     * @return the bitmask of the player's slots that the last flush sent as changed
+     */
+    public static int getChangedSlots(ServerPlayer player) {
+        return lastChanged.getInt(player.getUUID());
+    }
+
+    private static CosmeticStatePacket.Delta toDelta(ServerPlayer player, int changedSlots, int[] state) {
+        int[] items = new int[SLOTS.length];
+        int[] variants = new int[SLOTS.length];
+        System.arraycopy(state, 0, items, 0, SLOTS.length);
+        System.arraycopy(state, SLOTS.length, variants, 0, SLOTS.length);
+        return new CosmeticStatePacket.Delta(player.getId(), changedSlots, items, variants);
+    }
+
+    private static int[] capture(ServerPlayer player) {
+        int[] state = new int[SLOTS.length * 2];
+        for (int slot = 0; slot < SLOTS.length; slot++) {
+            ItemStack stack = player.getItemBySlot(SLOTS[slot]);
+            state[slot] = BuiltInRegistries.ITEM.getId(stack.getItem());
+            state[SLOTS.length + slot] = internVariant(WearableItem.getVariant(stack));
+        }
+        return state;
+    }
+
+    private static int internVariant(String variant) {
+        if (variant.isEmpty()) {
+            return 0;
+        }
+        int id = variantIds.getInt(variant);
+        if (id == 0) {
+            id = variantNames.size();
+            variantNames.add(variant);
+            variantIds.put(variant, id);
+        }
+        return id;
+    }
+}
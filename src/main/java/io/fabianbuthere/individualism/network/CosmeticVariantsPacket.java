@@ -0,0 +1,39 @@
+package io.fabianbuthere.individualism.network;
+
+import io.fabianbuthere.individualism.client.renderer.SyncedCosmetics;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Appends variant names to the client's copy of the server's variant table. The first name gets
+ * {@code firstId}, the following ones consecutive ids. Sent in full on login, then only new names.
+ */
+public record CosmeticVariantsPacket(int firstId, List<String> names) {
+    public void encode(FriendlyByteBuf buf) {
+        buf.writeVarInt(firstId);
+        buf.writeVarInt(names.size());
+        for (String name : names) {
+            buf.writeUtf(name);
+        }
+    }
+
+    public static CosmeticVariantsPacket decode(FriendlyByteBuf buf) {
+        int firstId = buf.readVarInt();
+        int count = buf.readVarInt();
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(buf.readUtf());
+        }
+        return new CosmeticVariantsPacket(firstId, names);
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> context) {
+        DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> SyncedCosmetics.addVariants(firstId, names));
+    }
+}
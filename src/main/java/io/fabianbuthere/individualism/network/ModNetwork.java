@@ -0,0 +1,47 @@
+package io.fabianbuthere.individualism.network;
+
+import io.fabianbuthere.individualism.Individualism;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.NetworkDirection;
+import net.minecraftforge.network.NetworkRegistry;
+import net.minecraftforge.network.PacketDistributor;
+import net.minecraftforge.network.simple.SimpleChannel;
+
+/**
+ * The mod's network channel. Clients without the mod may still connect, they are simply never sent anything.
+ */
+public class ModNetwork {
+    private static final String PROTOCOL_VERSION = "1";
+
+    public static final SimpleChannel CHANNEL = NetworkRegistry.newSimpleChannel(
+            ResourceLocation.fromNamespaceAndPath(Individualism.MOD_ID, "cosmetics"),
+            () -> PROTOCOL_VERSION,
+            NetworkRegistry.acceptMissingOr(PROTOCOL_VERSION),
+            NetworkRegistry.acceptMissingOr(PROTOCOL_VERSION)
+    );
+
+    public static void register() {
+        int id = 0;
+        CHANNEL.messageBuilder(CosmeticVariantsPacket.class, id++, NetworkDirection.PLAY_TO_CLIENT)
+                .encoder(CosmeticVariantsPacket::encode)
+                .decoder(CosmeticVariantsPacket::decode)
+                .consumerMainThread(CosmeticVariantsPacket::handle)
+                .add();
+        CHANNEL.messageBuilder(CosmeticStatePacket.class, id++, NetworkDirection.PLAY_TO_CLIENT)
+                .encoder(CosmeticStatePacket::encode)
+                .decoder(CosmeticStatePacket::decode)
+                .consumerMainThread(CosmeticStatePacket::handle)
+                .add();
+    }
+
+    public static boolean hasMod(ServerPlayer player) {
+        return CHANNEL.isRemotePresent(player.connection.connection);
+    }
+
+    public static void sendTo(ServerPlayer player, Object packet) {
+        if (hasMod(player)) {
+            CHANNEL.send(PacketDistributor.PLAYER.with(() -> player), packet);
+        }
+    }
+}